@@ -0,0 +1,175 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.CallbackFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.FetchEngine;
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lock-free {@code CallbackJoin} used by {@link CallbackFetcher} with the previous
+ * {@code synchronized} + {@code wait/notifyAll} coordination, with a wave of 50k callback
+ * fetches. Both variants run the callbacks on virtual threads.
+ * <p>
+ * The lock-free callers run on virtual threads, so the whole wave is in flight at once. The
+ * monitor-based callers cannot: on JDK 21 a virtual thread in {@code Object.wait} pins its
+ * carrier, and once every carrier is pinned the callbacks never run and the wave deadlocks.
+ * They therefore wait on {@value #MONITOR_CALLERS} platform threads, the default size of
+ * Tomcat's pool, which is how that code had to be deployed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class CallbackJoinBenchmark {
+
+    private static final int MONITOR_CALLERS = 200;
+
+    @Param({"50000"})
+    public int concurrency;
+
+    @Param({"10"})
+    public long latencyMs;
+
+    private FetchEngine engine;
+    private ExecutorService callers;
+    private ExecutorService monitorCallers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RetailService.setLatency(Duration.ofMillis(latencyMs));
+        engine = FetchEngine.virtual();
+        callers = Executors.newVirtualThreadPerTaskExecutor();
+        monitorCallers = Executors.newFixedThreadPool(MONITOR_CALLERS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.close();
+        monitorCallers.close();
+        engine.close();
+    }
+
+    @Benchmark
+    public void lockFree(Blackhole blackhole) throws Exception {
+        runWave(blackhole, callers, productId -> CallbackFetcher.fetch(productId, engine));
+    }
+
+    @Benchmark
+    public void monitor(Blackhole blackhole) throws Exception {
+        runWave(blackhole, monitorCallers, productId -> monitorFetch(productId, engine.executor()));
+    }
+
+    private void runWave(Blackhole blackhole, ExecutorService callers, WaveFetch fetch) throws Exception {
+        List<Future<ProductDetails>> wave = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            String productId = "P-" + i;
+            wave.add(callers.submit(() -> fetch.fetch(productId)));
+        }
+        for (Future<ProductDetails> future : wave) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    @FunctionalInterface
+    private interface WaveFetch {
+        ProductDetails fetch(String productId) throws Exception;
+    }
+
+    /**
+     * The monitor-based join {@link CallbackFetcher} used before {@code CallbackJoin}.
+     */
+    @SuppressWarnings("unchecked")
+    private static ProductDetails monitorFetch(String productId, Executor executor) throws InterruptedException {
+        final Double[] price = {null};
+        final Integer[] inventory = {null};
+        final List<String>[] reviews = new List[]{null};
+        final Throwable[] error = {null};
+        final Object lock = new Object();
+        final int[] completedTasks = {0};
+
+        RetailService.fetchPriceAsync(productId,
+            result -> {
+                synchronized (lock) {
+                    price[0] = result;
+                    completedTasks[0]++;
+                    lock.notifyAll();
+                }
+            },
+            err -> {
+                synchronized (lock) {
+                    error[0] = err;
+                    lock.notifyAll();
+                }
+            },
+            executor);
+
+        RetailService.fetchInventoryAsync(productId,
+            result -> {
+                synchronized (lock) {
+                    inventory[0] = result;
+                    completedTasks[0]++;
+                    lock.notifyAll();
+                }
+            },
+            err -> {
+                synchronized (lock) {
+                    error[0] = err;
+                    lock.notifyAll();
+                }
+            },
+            executor);
+
+        RetailService.fetchReviewsAsync(productId,
+            result -> {
+                synchronized (lock) {
+                    reviews[0] = result;
+                    completedTasks[0]++;
+                    lock.notifyAll();
+                }
+            },
+            err -> {
+                synchronized (lock) {
+                    error[0] = err;
+                    lock.notifyAll();
+                }
+            },
+            executor);
+
+        synchronized (lock) {
+            while (completedTasks[0] < 3 && error[0] == null) {
+                lock.wait();
+            }
+        }
+
+        if (error[0] != null) {
+            throw new RuntimeException("Callback fetch failed", error[0]);
+        }
+
+        return new ProductDetails(price[0], inventory[0], reviews[0]);
+    }
+}
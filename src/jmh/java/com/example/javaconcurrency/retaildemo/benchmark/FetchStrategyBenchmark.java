@@ -0,0 +1,112 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.CallbackFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.CompletableFutureFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.ExecutorServiceFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.FetchEngine;
+import com.example.javaconcurrency.retaildemo.concurrency.VirtualThreadFetcher;
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the four retaildemo fetch strategies at increasing concurrency.
+ * <p>
+ * One benchmark operation is a wave of {@code concurrency} simultaneous fetches of distinct
+ * products, so throughput is waves per second (multiply by {@code concurrency} for fetches
+ * per second) and the sampled percentiles are the completion time of the slowest fetch in a
+ * wave. Each strategy runs on its own long-lived {@link FetchEngine}, so pool setup is not
+ * measured. The simulated backend latency is {@code latencyMs} instead of the default second.
+ * <p>
+ * Run with {@code mvn -Pjmh compile exec:exec}; the default arguments add the GC profiler for
+ * allocation rate and write {@code target/jmh-result.json}. Narrow the matrix with e.g.
+ * {@code -Djmh.args="FetchStrategyBenchmark -p concurrency=1000 -rf json"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class FetchStrategyBenchmark {
+
+    public enum Strategy { EXECUTOR_SERVICE, VIRTUAL_THREAD, COMPLETABLE_FUTURE, CALLBACK }
+
+    @Param({"EXECUTOR_SERVICE", "VIRTUAL_THREAD", "COMPLETABLE_FUTURE", "CALLBACK"})
+    public Strategy strategy;
+
+    @Param({"1", "100", "1000", "10000", "100000"})
+    public int concurrency;
+
+    @Param({"10"})
+    public long latencyMs;
+
+    @Param({"200"})
+    public int platformThreads;
+
+    private FetchEngine engine;
+    private ExecutorService callers;
+    private String[] productIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RetailService.setLatency(Duration.ofMillis(latencyMs));
+        engine = switch (strategy) {
+            case EXECUTOR_SERVICE -> FetchEngine.platform(platformThreads);
+            case COMPLETABLE_FUTURE -> FetchEngine.forkJoin(Runtime.getRuntime().availableProcessors());
+            case VIRTUAL_THREAD, CALLBACK -> FetchEngine.virtual();
+        };
+        callers = Executors.newVirtualThreadPerTaskExecutor();
+        productIds = new String[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            productIds[i] = "P-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.close();
+        engine.close();
+    }
+
+    @Benchmark
+    public void fetchWave(Blackhole blackhole) throws Exception {
+        List<Future<ProductDetails>> wave = new ArrayList<>(concurrency);
+        for (String productId : productIds) {
+            wave.add(callers.submit(() -> fetch(productId)));
+        }
+        for (Future<ProductDetails> future : wave) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    private ProductDetails fetch(String productId) throws Exception {
+        return switch (strategy) {
+            case EXECUTOR_SERVICE -> ExecutorServiceFetcher.fetch(productId, engine);
+            case VIRTUAL_THREAD -> VirtualThreadFetcher.fetch(productId, engine);
+            case COMPLETABLE_FUTURE -> CompletableFutureFetcher.fetch(productId, engine);
+            case CALLBACK -> CallbackFetcher.fetch(productId, engine);
+        };
+    }
+}
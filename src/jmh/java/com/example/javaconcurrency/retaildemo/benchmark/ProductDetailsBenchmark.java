@@ -0,0 +1,76 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.model.ProductDetailsCodec;
+import com.example.javaconcurrency.retaildemo.model.ProductDetailsPool;
+import com.example.javaconcurrency.retaildemo.model.ReviewPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation and cost of assembling and serializing one {@link ProductDetails}, as served per
+ * catalogue request. Run with the GC profiler (the jmh profile default) and compare
+ * {@code gc.alloc.rate.norm}: the baseline builds fresh review strings and serializes through
+ * {@code toString().getBytes()}, the compact path reuses pooled reviews and a shared instance
+ * and writes into a reused direct buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ProductDetailsBenchmark {
+
+    private ProductDetailsPool pool;
+    private ProductDetailsCodec codec;
+    private ByteBuffer buffer;
+    private int inventory;
+
+    @Setup
+    public void setUp() {
+        ReviewPool reviewPool = new ReviewPool(10_000);
+        pool = new ProductDetailsPool(reviewPool, true, 10_000);
+        codec = new ProductDetailsCodec(reviewPool);
+        buffer = ByteBuffer.allocateDirect(4096);
+        inventory = 50;
+    }
+
+    @Benchmark
+    public byte[] baseline() {
+        // What a backend response deserializer hands us: new strings every call
+        List<String> reviews = List.of(new String("Great product!"), new String("Highly recommended"));
+        ProductDetails details = new ProductDetails(99.99, inventory, reviews);
+        return details.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int compact() {
+        List<String> reviews = List.of(new String("Great product!"), new String("Highly recommended"));
+        ProductDetails details = pool.of(99.99, inventory, reviews);
+        buffer.clear();
+        codec.write(details, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int encodeOnly() {
+        ProductDetails details = pool.of(99.99, inventory, List.of("Great product!", "Highly recommended"));
+        buffer.clear();
+        codec.write(details, buffer);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.javaconcurrency.structured;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of fanning out subtasks with each scope in this package against the
+ * executor-based equivalents.
+ * <p>
+ * One benchmark operation is {@code parents} concurrent parent requests, each forking
+ * {@code fanOut} subtasks that burn {@code workTokens} of CPU and joining them. With the
+ * default of no work the operation time is pure fork/join overhead, so dividing the average
+ * time by {@code parents * fanOut} gives the cost per subtask, and dividing
+ * {@code gc.alloc.rate.norm} from {@code -prof gc} by {@code parents} gives the allocation
+ * per scope. The sampled percentiles are the completion time of the slowest parent.
+ * <p>
+ * Every strategy runs its subtasks on virtual threads; the executor strategies share one
+ * virtual-thread-per-task executor for the trial. The full matrix is large, so narrow it
+ * with e.g. {@code -Djmh.args="FanOutBenchmark -p fanOut=100 -p parents=1000 -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class FanOutBenchmark {
+
+    public enum Strategy { SHUTDOWN_ON_FAILURE, SHUTDOWN_ON_SUCCESS, THRESHOLD, INVOKE_ALL, COMPLETABLE_FUTURE }
+
+    @Param({"SHUTDOWN_ON_FAILURE", "SHUTDOWN_ON_SUCCESS", "THRESHOLD", "INVOKE_ALL", "COMPLETABLE_FUTURE"})
+    public Strategy strategy;
+
+    @Param({"2", "10", "100", "1000"})
+    public int fanOut;
+
+    @Param({"1", "100", "1000", "10000", "100000"})
+    public int parents;
+
+    @Param({"0"})
+    public long workTokens;
+
+    private ExecutorService callers;
+    private ExecutorService subtasks;
+    private List<Callable<Long>> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        callers = Executors.newVirtualThreadPerTaskExecutor();
+        subtasks = Executors.newVirtualThreadPerTaskExecutor();
+        tasks = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            long id = i;
+            tasks.add(() -> {
+                Blackhole.consumeCPU(workTokens);
+                return id;
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.close();
+        subtasks.close();
+    }
+
+    @Benchmark
+    public void fanOut(Blackhole blackhole) throws Exception {
+        if (parents == 1) {
+            blackhole.consume(parent());
+            return;
+        }
+        List<Future<Long>> wave = new ArrayList<>(parents);
+        for (int i = 0; i < parents; i++) {
+            wave.add(callers.submit(this::parent));
+        }
+        for (Future<Long> future : wave) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    private long parent() throws Exception {
+        return switch (strategy) {
+            case SHUTDOWN_ON_FAILURE -> shutdownOnFailure();
+            case SHUTDOWN_ON_SUCCESS -> shutdownOnSuccess();
+            case THRESHOLD -> threshold();
+            case INVOKE_ALL -> invokeAll();
+            case COMPLETABLE_FUTURE -> completableFuture();
+        };
+    }
+
+    private long shutdownOnFailure() throws Exception {
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            List<StructuredTaskScope.Subtask<Long>> forked = new ArrayList<>(fanOut);
+            for (Callable<Long> task : tasks) {
+                forked.add(scope.fork(task));
+            }
+            scope.join().throwIfFailed();
+            long sum = 0;
+            for (StructuredTaskScope.Subtask<Long> subtask : forked) {
+                sum += subtask.get();
+            }
+            return sum;
+        }
+    }
+
+    private long shutdownOnSuccess() throws Exception {
+        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<Long>()) {
+            for (Callable<Long> task : tasks) {
+                scope.fork(task);
+            }
+            return scope.join().result();
+        }
+    }
+
+    private long threshold() throws Exception {
+        try (var scope = new TaskScopePatterns.ThresholdTaskScope<Long>(fanOut)) {
+            for (Callable<Long> task : tasks) {
+                scope.fork(task);
+            }
+            scope.join();
+            long sum = 0;
+            for (Long result : scope.getResults()) {
+                sum += result;
+            }
+            return sum;
+        }
+    }
+
+    private long invokeAll() throws Exception {
+        long sum = 0;
+        for (Future<Long> future : subtasks.invokeAll(tasks)) {
+            sum += future.get();
+        }
+        return sum;
+    }
+
+    private long completableFuture() {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(fanOut);
+        for (Callable<Long> task : tasks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, subtasks));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        long sum = 0;
+        for (CompletableFuture<Long> future : futures) {
+            sum += future.join();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.javaconcurrency.structured;
+
+import com.example.javaconcurrency.structured.NioHttpServer.Request;
+import com.example.javaconcurrency.structured.NioHttpServer.ResponseOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of producing one {@code /hello} response, headers included, the way
+ * {@link SimpleVirtualThreadServer} does ({@code String.formatted}, {@code getBytes}, header
+ * concatenation) against {@link PreEncodedResponses} writing into a pooled direct buffer.
+ * <p>
+ * Responses are written into the output buffer and discarded, so no socket I/O is measured.
+ * Run with {@code -Djmh.args="ResponseEncodingBenchmark -prof gc"}: {@code gc.alloc.rate.norm}
+ * is the allocation per response. End-to-end req/s for both paths are printed by
+ * {@link ConnectionLoadGenerator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ResponseEncodingBenchmark {
+
+    private final Request request = new Request("GET", "/hello", null, true);
+    private SocketChannel channel;
+    private ResponseOutput output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Never connected: responses are only encoded, never flushed
+        channel = SocketChannel.open();
+        output = new ResponseOutput(channel, new DirectBufferPool(NioHttpServer.BUFFER_SIZE, 4));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        channel.close();
+    }
+
+    @Benchmark
+    public int formatted() throws IOException {
+        output.write(SimpleVirtualThreadServer.hello());
+        return discard();
+    }
+
+    @Benchmark
+    public int preEncoded() throws IOException {
+        PreEncodedResponses.hello(request, output);
+        return discard();
+    }
+
+    private int discard() throws IOException {
+        int written = output.buffer(1).position();
+        output.discard();
+        return written;
+    }
+}
@@ -3,16 +3,18 @@ package com.example.javaconcurrency.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 
-import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 @Configuration
 public class VirtualThreadConfig {
 
+    // Spring MVC only runs Callable and WebAsyncTask results on this bean if it is an
+    // AsyncTaskExecutor; a plain Executor is skipped in favour of SimpleAsyncTaskExecutor
     @Bean
-    public Executor applicationTaskExecutor() {
-        return Executors.newVirtualThreadPerTaskExecutor();
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
     }
 }
-
@@ -0,0 +1,118 @@
+package com.example.javaconcurrency.controller;
+
+
+import com.example.javaconcurrency.Application;
+import com.example.javaconcurrency.structured.HttpLoadGenerator;
+import com.example.javaconcurrency.structured.LatencyHistogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the Spring application once per request handling mode with the {@code bench}
+ * profile and drives {@link HandlerBenchmarkController} with a closed loop of 1k to 20k
+ * concurrent clients, recording throughput and p99 latency.
+ * <p>
+ * Every client sends its next request as soon as the previous response arrives, so an ideal
+ * server answers {@code clients / delay} requests per second. Results are printed and appended
+ * to {@code target/handler-benchmark.csv} (or {@code -Dbench.output}).
+ * <p>
+ * Usage: {@code mvn -Pspring-bench compile exec:exec [-Dbench.args="..."]}, with arguments
+ * {@code [clients=1000,2000,5000,10000,20000] [delayMs=100] [seconds=10] [modes=all]}. The
+ * clients run in the same JVM as the server, so 20k clients need about 40k file descriptors
+ * ({@code ulimit -n}). For numbers without that interference, start the application with
+ * {@code --spring.profiles.active=bench} and point {@link HttpLoadGenerator} at it from
+ * another machine.
+ */
+public class HandlerBenchmark {
+
+    enum Mode {
+        // Blocking handlers on Tomcat's 200 platform threads
+        TOMCAT_PLATFORM("/api/bench/blocking", false),
+        // Blocking handlers on a virtual thread per request
+        SPRING_VIRTUAL("/api/bench/blocking", true),
+        // Callable results run on the VirtualThreadConfig executor
+        TASK_EXECUTOR("/api/bench/callable", false),
+        // DeferredResult completed without blocking a thread
+        DEFERRED_RESULT("/api/bench/deferred", false);
+
+        final String path;
+        final boolean virtualThreads;
+
+        Mode(String path, boolean virtualThreads) {
+            this.path = path;
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> clientCounts = Arrays.stream((args.length > 0 ? args[0] : "1000,2000,5000,10000,20000").split(","))
+                .map(Integer::parseInt)
+                .toList();
+        long delayMs = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        List<Mode> modes = args.length > 3 && !args[3].equals("all")
+                ? Arrays.stream(args[3].split(",")).map(name -> Mode.valueOf(name.toUpperCase())).toList()
+                : List.of(Mode.values());
+        Path output = Path.of(System.getProperty("bench.output", "target/handler-benchmark.csv"));
+
+        List<String> rows = new ArrayList<>();
+        for (Mode mode : modes) {
+            try (var context = new SpringApplicationBuilder(Application.class)
+                    .profiles("bench")
+                    .properties("server.port=0", "spring.threads.virtual.enabled=" + mode.virtualThreads)
+                    .run()) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI uri = URI.create("http://localhost:" + port + mode.path + "?ms=" + delayMs);
+
+                // Warm up the JIT and the connection pools first
+                HttpLoadGenerator.run(config(uri, clientCounts.get(0), delayMs, Duration.ofSeconds(3)));
+
+                for (int clients : clientCounts) {
+                    var result = HttpLoadGenerator.run(config(uri, clients, delayMs, duration));
+                    String row = String.format("%s,%d,%d,%d,%.0f,%.0f,%.1f,%.1f,%.1f",
+                            mode, clients, result.requests(), result.errors(), result.requestsPerSecond(),
+                            result.successfulRequestsPerSecond(),
+                            millis(result.corrected(), 50), millis(result.corrected(), 99), millis(result.measured(), 99));
+                    // Errors return quickly, so only successful responses measure throughput
+                    System.out.printf("%-16s %6d clients: %,9.0f ok/s, %d errors, p50 %.1f ms, p99 %.1f ms%n",
+                            mode, clients, result.successfulRequestsPerSecond(), result.errors(),
+                            millis(result.corrected(), 50), millis(result.corrected(), 99));
+                    rows.add(row);
+                }
+            }
+        }
+
+        write(output, rows);
+        System.out.println("Results appended to " + output);
+    }
+
+    private static HttpLoadGenerator.Config config(URI uri, int clients, long delayMs, Duration duration) {
+        // Pace each client to one request per delay, which it can only miss by being served late
+        int rate = (int) (clients * 1000L / delayMs);
+        return new HttpLoadGenerator.Config(uri, HttpLoadGenerator.Mode.CLOSED, clients, rate, duration);
+    }
+
+    private static double millis(LatencyHistogram histogram, double percentile) {
+        return histogram.valueAtPercentile(percentile) / 1_000_000.0;
+    }
+
+    private static void write(Path output, List<String> rows) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        if (!Files.exists(output)) {
+            Files.writeString(output, "mode,clients,requests,errors,requestsPerSecond,successfulPerSecond,p50Ms,p99Ms,measuredP99Ms\n");
+        }
+        Files.write(output, rows, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.javaconcurrency.controller;
+
+
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same simulated blocking call handled in three ways, for {@link HandlerBenchmark}.
+ * Unlike the {@code /platform} endpoints of the other controllers, nothing here funnels
+ * requests through a small private pool, so throughput is limited only by the request
+ * handling model under test.
+ */
+@RestController
+@RequestMapping("/api/bench")
+public class HandlerBenchmarkController {
+
+    // Stands in for an asynchronous client: completes results without holding a thread meanwhile
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bench-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Blocks the request thread: a Tomcat worker, or a virtual thread with
+     * {@code spring.threads.virtual.enabled=true}.
+     */
+    @GetMapping("/blocking")
+    public String handleBlocking(@RequestParam(defaultValue = "100") long ms) {
+        simulateBlockingCall(ms);
+        return response();
+    }
+
+    /**
+     * Releases the Tomcat thread and blocks on the MVC task executor instead, the virtual
+     * thread executor of {@code VirtualThreadConfig}.
+     */
+    @GetMapping("/callable")
+    public Callable<String> handleCallable(@RequestParam(defaultValue = "100") long ms) {
+        return () -> {
+            simulateBlockingCall(ms);
+            return response();
+        };
+    }
+
+    /**
+     * Releases the Tomcat thread and completes later without blocking any thread.
+     */
+    @GetMapping("/deferred")
+    public DeferredResult<String> handleDeferred(@RequestParam(defaultValue = "100") long ms) {
+        DeferredResult<String> result = new DeferredResult<>();
+        timer.schedule(() -> result.setResult("Handled asynchronously"), ms, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private String response() {
+        Thread t = Thread.currentThread();
+        return "Handled by " + t.getName() + ", virtual=" + t.isVirtual();
+    }
+
+    private void simulateBlockingCall(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.example.javaconcurrency.retaildemo;
 
 
+import com.example.javaconcurrency.retaildemo.benchmark.LoadRunner;
 import com.example.javaconcurrency.retaildemo.concurrency.*;
-import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+import com.example.javaconcurrency.retaildemo.service.BackendSimulator;
+import com.example.javaconcurrency.retaildemo.service.EndpointProfile;
+import com.example.javaconcurrency.retaildemo.service.LatencyModel;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+
+import java.time.Duration;
 
 public class Main {
     private static final String PRODUCT_ID = "12345";
+    private static final int FETCHES = 200;
+    private static final int CONCURRENCY = 50;
 
     public static void main(String[] args) {
         try {
@@ -15,8 +24,34 @@ public class Main {
             //System.out.println("Reactor: " + ReactorFetcher.fetch(PRODUCT_ID));
             //System.out.println("HttpClient: " + HttpClientFetcher.fetch(PRODUCT_ID));
             System.out.println("Callbacks: " + CallbackFetcher.fetch(PRODUCT_ID));
+
+            // Same comparison under load against backends that behave like real services
+            long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+            RetailService.setSimulator(realisticBackends(seed));
+            System.out.println("\n" + FETCHES + " fetches, " + CONCURRENCY + " in flight, seed " + seed + ":");
+            System.out.println("ExecutorService:   " + LoadRunner.run(ExecutorServiceFetcher::fetch, FETCHES, CONCURRENCY));
+            System.out.println("Virtual Threads:   " + LoadRunner.run(VirtualThreadFetcher::fetch, FETCHES, CONCURRENCY));
+            System.out.println("CompletableFuture: " + LoadRunner.run(CompletableFutureFetcher::fetch, FETCHES, CONCURRENCY));
+            System.out.println("Callbacks:         " + LoadRunner.run(CallbackFetcher::fetch, FETCHES, CONCURRENCY));
+
+            BackendSimulator simulator = RetailService.getSimulator();
+            System.out.println("Backend failures: " + simulator.failures() + ", timeouts: " + simulator.timeouts());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    private static BackendSimulator realisticBackends(long seed) {
+        return BackendSimulator.builder()
+                .seed(seed)
+                .endpoint(ProductField.PRICE, new EndpointProfile(
+                        LatencyModel.logNormal(Duration.ofMillis(20), 0.5), 0.01, Duration.ofMillis(250)))
+                .endpoint(ProductField.INVENTORY, new EndpointProfile(
+                        LatencyModel.uniform(Duration.ofMillis(10), Duration.ofMillis(40)), 0.005, Duration.ofMillis(250)))
+                .endpoint(ProductField.REVIEWS, new EndpointProfile(
+                        LatencyModel.bimodal(LatencyModel.logNormal(Duration.ofMillis(30), 0.3),
+                                LatencyModel.fixed(Duration.ofMillis(400)), 0.02),
+                        0.02, Duration.ofMillis(250)))
+                .build();
+    }
 }
@@ -0,0 +1,53 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.BatchFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.VirtualThreadFetcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches 10k products with {@link BatchFetcher#fetchAll} and, for comparison, with one
+ * {@link VirtualThreadFetcher#fetch} per product. Both should finish close to one backend
+ * round-trip; the batch path does it with a fraction of the backend calls.
+ */
+public class BatchFetchDemo {
+    private static final int PRODUCTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> productIds = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add("P-" + i);
+        }
+
+        AtomicInteger received = new AtomicInteger();
+        AtomicLong firstResultAt = new AtomicLong();
+        long start = System.nanoTime();
+        BatchFetcher.fetchAll(productIds, (productId, details) -> {
+            if (received.getAndIncrement() == 0) {
+                firstResultAt.set(System.nanoTime());
+            }
+        }).join();
+        long end = System.nanoTime();
+        int batches = (PRODUCTS + BatchFetcher.DEFAULT_BATCH_SIZE - 1) / BatchFetcher.DEFAULT_BATCH_SIZE;
+        System.out.printf("Batch fetchAll:     %d products, %d backend calls, first result after %d ms, all after %d ms%n",
+                received.get(), batches * 3,
+                TimeUnit.NANOSECONDS.toMillis(firstResultAt.get() - start),
+                TimeUnit.NANOSECONDS.toMillis(end - start));
+
+        start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String productId : productIds) {
+                callers.submit(() -> VirtualThreadFetcher.fetch(productId));
+            }
+        }
+        end = System.nanoTime();
+        System.out.printf("Per-product fetch:  %d products, %d backend calls, all after %d ms%n",
+                PRODUCTS, PRODUCTS * 3, TimeUnit.NANOSECONDS.toMillis(end - start));
+    }
+}
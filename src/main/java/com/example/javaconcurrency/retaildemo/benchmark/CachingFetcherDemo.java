@@ -0,0 +1,48 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.cache.CacheStats;
+import com.example.javaconcurrency.retaildemo.concurrency.CachingFetcher;
+
+import java.time.Duration;
+
+/**
+ * Shows cold vs warm fetch latency through {@link CachingFetcher}, a stale-while-revalidate
+ * refresh of the short-lived inventory field, and LRU evictions once the size cap is reached.
+ */
+public class CachingFetcherDemo {
+
+    public static void main(String[] args) throws Exception {
+        CachingFetcher fetcher = new CachingFetcher(
+                Duration.ofSeconds(30), Duration.ofSeconds(2), Duration.ofMinutes(10), 2);
+
+        time("Cold fetch P-1", () -> fetcher.fetch("P-1"));
+        time("Warm fetch P-1", () -> fetcher.fetch("P-1"));
+
+        Thread.sleep(Duration.ofMillis(2500));
+        time("Stale inventory P-1 (refresh in background)", () -> fetcher.fetch("P-1"));
+        Thread.sleep(Duration.ofMillis(1200));
+        time("Refreshed P-1", () -> fetcher.fetch("P-1"));
+
+        time("Cold fetch P-2", () -> fetcher.fetch("P-2"));
+        time("Cold fetch P-3 (evicts P-1)", () -> fetcher.fetch("P-3"));
+
+        System.out.println("\nCache statistics:");
+        for (CacheStats stats : fetcher.stats()) {
+            System.out.printf("%-9s hits=%d stale=%d misses=%d evictions=%d refreshes=%d size=%d hitRatio=%.2f%n",
+                    stats.name(), stats.hits(), stats.staleHits(), stats.misses(),
+                    stats.evictions(), stats.refreshes(), stats.size(), stats.hitRatio());
+        }
+    }
+
+    private static void time(String label, FetchCall call) throws Exception {
+        long start = System.nanoTime();
+        Object result = call.run();
+        long micros = (System.nanoTime() - start) / 1_000;
+        System.out.printf("%-45s %8d us  %s%n", label, micros, result);
+    }
+
+    @FunctionalInterface
+    private interface FetchCall {
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.CoalescingFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.ProductFetcher;
+import com.example.javaconcurrency.retaildemo.concurrency.VirtualThreadFetcher;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for {@link CoalescingFetcher}: 10k concurrent callers spread over 100 products,
+ * run once directly against {@link VirtualThreadFetcher} and once through the coalescing layer.
+ * Reports backend-call count (three per product fetch) and caller latency percentiles.
+ */
+public class CoalescingLoadTest {
+    private static final int CALLERS = 10_000;
+    private static final int PRODUCTS = 100;
+    private static final int BACKEND_CALLS_PER_FETCH = 3;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Request coalescing load test: " + CALLERS + " callers over " + PRODUCTS + " products");
+
+        LongAdder directFetches = new LongAdder();
+        ProductFetcher direct = productId -> {
+            directFetches.increment();
+            return VirtualThreadFetcher.fetch(productId);
+        };
+        run("Direct", direct, directFetches);
+
+        LongAdder coalescedFetches = new LongAdder();
+        CoalescingFetcher coalescing = new CoalescingFetcher(productId -> {
+            coalescedFetches.increment();
+            return VirtualThreadFetcher.fetch(productId);
+        });
+        run("Coalescing", coalescing, coalescedFetches);
+        System.out.println("Coalescing: " + coalescing.coalescedCalls() + " callers shared an in-flight fetch");
+    }
+
+    private static void run(String label, ProductFetcher fetcher, LongAdder delegateFetches) throws InterruptedException {
+        long[] latencies = new long[CALLERS];
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        long begin;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                final int caller = i;
+                final String productId = "P-" + (i % PRODUCTS);
+                callers.submit(() -> {
+                    start.await();
+                    long t0 = System.nanoTime();
+                    try {
+                        fetcher.fetch(productId);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[caller] = System.nanoTime() - t0;
+                    return null;
+                });
+            }
+            begin = System.nanoTime();
+            start.countDown();
+        }
+        long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10s backend calls=%d, failures=%d, wall=%d ms, p50=%d ms, p99=%d ms, max=%d ms%n",
+                label,
+                delegateFetches.sum() * BACKEND_CALLS_PER_FETCH,
+                failures.get(),
+                wallMs,
+                LoadRunner.percentileMillis(latencies, 0.50),
+                LoadRunner.percentileMillis(latencies, 0.99),
+                TimeUnit.NANOSECONDS.toMillis(latencies[latencies.length - 1]));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.DeadlineFetcher;
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+
+import java.time.Duration;
+
+/**
+ * Shows {@link DeadlineFetcher} returning within its budget: a generous budget yields
+ * complete details, a 150 ms budget against the 1 s backends returns degraded details
+ * listing the late fields.
+ */
+public class DeadlineFetchDemo {
+
+    public static void main(String[] args) throws Exception {
+        run(Duration.ofMillis(1500));
+        run(Duration.ofMillis(150));
+    }
+
+    private static void run(Duration budget) throws InterruptedException {
+        long start = System.nanoTime();
+        ProductDetails details = DeadlineFetcher.fetch("12345", budget);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("Budget %4d ms -> returned after %4d ms, complete=%b, late=%s, failed=%s%n  %s%n",
+                budget.toMillis(), elapsedMs, details.isComplete(), details.getLateFields(),
+                details.getFailedFields(), details);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.javaconcurrency.retaildemo.benchmark;
+
+import com.example.javaconcurrency.retaildemo.concurrency.ProductFetcher;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop driver for the retaildemo fetchers: keeps {@code concurrency} fetches of
+ * distinct products in flight on virtual threads until {@code fetches} have completed.
+ */
+public class LoadRunner {
+
+    public record Result(int fetches, long failures, long wallMillis, long p50Millis, long p95Millis,
+                         long p99Millis, long maxMillis) {
+
+        public double throughputPerSecond() {
+            return wallMillis == 0 ? 0.0 : fetches * 1000.0 / wallMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ok=%d failed=%d  %7.1f fetches/s  p50=%4d ms  p95=%4d ms  p99=%4d ms  max=%4d ms",
+                    fetches - failures, failures, throughputPerSecond(), p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+
+    private LoadRunner() {
+    }
+
+    public static Result run(ProductFetcher fetcher, int fetches, int concurrency) throws InterruptedException {
+        long[] latencies = new long[fetches];
+        LongAdder failures = new LongAdder();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < fetches; i++) {
+                final int index = i;
+                inFlight.acquire();
+                callers.submit(() -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        fetcher.fetch("P-" + index);
+                    } catch (Exception e) {
+                        failures.increment();
+                    } finally {
+                        latencies[index] = System.nanoTime() - t0;
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Arrays.sort(latencies);
+        return new Result(fetches, failures.sum(), wallMillis,
+                percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.95),
+                percentileMillis(latencies, 0.99), TimeUnit.NANOSECONDS.toMillis(latencies[fetches - 1]));
+    }
+
+    static long percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.javaconcurrency.retaildemo.cache;
+
+/**
+ * Point-in-time counters of a {@link FieldCache}. Stale hits are served from the cache
+ * but trigger a background refresh; refreshes counts how many of those were started.
+ */
+public record CacheStats(String name, long hits, long staleHits, long misses,
+                         long evictions, long refreshes, int size) {
+
+    public double hitRatio() {
+        long requests = hits + staleHits + misses;
+        return requests == 0 ? 0.0 : (double) (hits + staleHits) / requests;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.javaconcurrency.retaildemo.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache for one field of a product with its own TTL.
+ * <p>
+ * An entry is <em>fresh</em> for {@code ttl} after it was loaded and is returned as-is.
+ * For a further {@code staleWindow} it is <em>stale</em>: it is still returned immediately,
+ * and a single background refresh is started on the loader executor. Past that the entry
+ * counts as a miss and callers wait for a reload. Concurrent loads of the same key share
+ * one loader call.
+ * <p>
+ * The LRU order is kept in an access-ordered {@link LinkedHashMap} guarded by a
+ * {@link ReentrantLock} rather than {@code synchronized}, so virtual threads never pin
+ * on the cache.
+ */
+public class FieldCache<V> {
+    private final String name;
+    private final Function<String, V> loader;
+    private final Executor loaderExecutor;
+    private final long ttlNanos;
+    private final long staleWindowNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry<V>> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    public FieldCache(String name, Function<String, V> loader, Executor loaderExecutor,
+                      Duration ttl, Duration staleWindow, int maxSize) {
+        this.name = name;
+        this.loader = loader;
+        this.loaderExecutor = loaderExecutor;
+        this.ttlNanos = ttl.toNanos();
+        this.staleWindowNanos = staleWindow.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, completing immediately for fresh and stale
+     * entries and asynchronously when the value has to be (re)loaded.
+     */
+    public CompletableFuture<V> get(String key) {
+        Entry<V> entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+
+        if (entry != null) {
+            long age = System.nanoTime() - entry.loadedAt;
+            if (age < ttlNanos) {
+                hits.increment();
+                return CompletableFuture.completedFuture(entry.value);
+            }
+            if (age < ttlNanos + staleWindowNanos) {
+                staleHits.increment();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    refreshes.increment();
+                    // Allow another refresh if this one fails; a success replaces the entry
+                    load(key).whenComplete((value, failure) -> entry.refreshing.set(false));
+                }
+                return CompletableFuture.completedFuture(entry.value);
+            }
+        }
+
+        misses.increment();
+        return load(key);
+    }
+
+    /**
+     * Removes the entry. A load already in flight still completes its callers but no longer
+     * stores its value, which may predate the invalidation.
+     */
+    public void invalidate(String key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+            loading.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(name, hits.sum(), staleHits.sum(), misses.sum(),
+                evictions.sum(), refreshes.sum(), size());
+    }
+
+    private CompletableFuture<V> load(String key) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, call);
+        if (existing != null) {
+            return existing;
+        }
+
+        loaderExecutor.execute(() -> {
+            try {
+                V value = loader.apply(key);
+                lock.lock();
+                try {
+                    // Only the load registered for the key may store; invalidate() unregisters it
+                    if (loading.get(key) == call) {
+                        entries.put(key, new Entry<>(value, System.nanoTime()));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                call.complete(value);
+            } catch (Throwable t) {
+                call.completeExceptionally(t);
+            } finally {
+                loading.remove(key, call);
+            }
+        });
+        return call;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+/**
+ * Fetches many products at once. Product ids are split into batches, and each batch costs
+ * three backend round-trips (one per field, via the {@code fetch*Batch} calls on
+ * {@link RetailService}) that all run concurrently on one {@link FetchEngine}, the shared
+ * virtual-thread engine unless another one is given.
+ * Results are handed to the caller batch by batch as soon as a batch completes.
+ */
+public class BatchFetcher {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Streams results to {@code onResult} as batches complete. The callback may be invoked
+     * concurrently from several threads. The returned future completes once every batch has
+     * been delivered, or exceptionally as soon as any batch fails; batches still running then
+     * keep delivering their results.
+     */
+    public static CompletableFuture<Void> fetchAll(Collection<String> productIds,
+                                                   BiConsumer<String, ProductDetails> onResult) {
+        return fetchAll(productIds, DEFAULT_BATCH_SIZE, FetchEngine.shared(FetchEngine.Kind.VIRTUAL), onResult);
+    }
+
+    public static CompletableFuture<Void> fetchAll(Collection<String> productIds, int batchSize, FetchEngine engine,
+                                                   BiConsumer<String, ProductDetails> onResult) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (List<String> batch : partition(productIds, batchSize)) {
+            CompletableFuture<Void> fetched = fetchBatch(batch, engine.executor(), onResult);
+            // Fail fast instead of waiting for the remaining batches
+            fetched.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure);
+                }
+            });
+            batches.add(fetched);
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0]))
+            .thenRun(() -> result.complete(null));
+        return result;
+    }
+
+    /**
+     * Blocking convenience variant that collects every result into a map.
+     */
+    public static Map<String, ProductDetails> fetchAll(Collection<String> productIds) throws Exception {
+        Map<String, ProductDetails> results = new ConcurrentHashMap<>();
+        try {
+            fetchAll(productIds, results::put).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static CompletableFuture<Void> fetchBatch(List<String> batch, Executor executor,
+                                                      BiConsumer<String, ProductDetails> onResult) {
+        CompletableFuture<Map<String, Double>> pricesFuture = CompletableFuture.supplyAsync(
+            () -> RetailService.fetchPricesBatch(batch), executor
+        );
+        CompletableFuture<Map<String, Integer>> inventoryFuture = CompletableFuture.supplyAsync(
+            () -> RetailService.fetchInventoryBatch(batch), executor
+        );
+        CompletableFuture<Map<String, List<String>>> reviewsFuture = CompletableFuture.supplyAsync(
+            () -> RetailService.fetchReviewsBatch(batch), executor
+        );
+
+        return CompletableFuture.allOf(pricesFuture, inventoryFuture, reviewsFuture)
+            .thenRun(() -> {
+                Map<String, Double> prices = pricesFuture.join();
+                Map<String, Integer> inventory = inventoryFuture.join();
+                Map<String, List<String>> reviews = reviewsFuture.join();
+                for (String productId : batch) {
+                    onResult.accept(productId, new ProductDetails(
+                        require(prices, productId, "price"),
+                        require(inventory, productId, "inventory"),
+                        require(reviews, productId, "reviews")
+                    ));
+                }
+            });
+    }
+
+    private static <T> T require(Map<String, T> batchResult, String productId, String field) {
+        T value = batchResult.get(productId);
+        if (value == null) {
+            throw new IllegalStateException("Batch response has no " + field + " for product " + productId);
+        }
+        return value;
+    }
+
+    private static List<List<String>> partition(Collection<String> productIds, int batchSize) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>(batchSize);
+        for (String productId : productIds) {
+            current.add(productId);
+            if (current.size() == batchSize) {
+                batches.add(current);
+                current = new ArrayList<>(batchSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+}
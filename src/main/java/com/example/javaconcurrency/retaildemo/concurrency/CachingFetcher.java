@@ -0,0 +1,77 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.cache.CacheStats;
+import com.example.javaconcurrency.retaildemo.cache.FieldCache;
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Assembles {@link ProductDetails} from three independent {@link FieldCache}s, one per
+ * backend field, each with its own TTL. Warm keys are served without touching
+ * {@link RetailService}; misses and stale-while-revalidate refreshes run on the given {@link FetchEngine},
+ * virtual threads by default.
+ * <p>
+ * Each field's stale window equals its TTL: once an entry expires it is served for as long
+ * again while one background refresh runs, so a field is at most twice its TTL old. Scaling
+ * the window with the TTL keeps a 2s inventory entry from being served minutes late, while
+ * reviews may stay stale for as long as they were fresh.
+ */
+public class CachingFetcher implements ProductFetcher {
+    private final FieldCache<Double> prices;
+    private final FieldCache<Integer> inventory;
+    private final FieldCache<List<String>> reviews;
+
+    /**
+     * Default TTLs follow how often each field changes: inventory moves constantly,
+     * prices a few times a day, reviews rarely.
+     */
+    public CachingFetcher(int maxSize) {
+        this(Duration.ofSeconds(30), Duration.ofSeconds(2), Duration.ofMinutes(10), maxSize);
+    }
+
+    public CachingFetcher(Duration priceTtl, Duration inventoryTtl, Duration reviewsTtl, int maxSize) {
+        this(priceTtl, inventoryTtl, reviewsTtl, maxSize, FetchEngine.shared(FetchEngine.Kind.VIRTUAL));
+    }
+
+    public CachingFetcher(Duration priceTtl, Duration inventoryTtl, Duration reviewsTtl, int maxSize,
+                          FetchEngine engine) {
+        Executor loader = engine.executor();
+        // Each TTL doubles as its field's stale window; see the class comment
+        this.prices = new FieldCache<>("price", RetailService::fetchPrice, loader,
+                priceTtl, priceTtl, maxSize);
+        this.inventory = new FieldCache<>("inventory", RetailService::fetchInventory, loader,
+                inventoryTtl, inventoryTtl, maxSize);
+        this.reviews = new FieldCache<>("reviews", RetailService::fetchReviews, loader,
+                reviewsTtl, reviewsTtl, maxSize);
+    }
+
+    @Override
+    public ProductDetails fetch(String productId) throws Exception {
+        CompletableFuture<Double> priceFuture = prices.get(productId);
+        CompletableFuture<Integer> inventoryFuture = inventory.get(productId);
+        CompletableFuture<List<String>> reviewsFuture = reviews.get(productId);
+
+        try {
+            return new ProductDetails(
+                priceFuture.get(),
+                inventoryFuture.get(),
+                reviewsFuture.get()
+            );
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public List<CacheStats> stats() {
+        return List.of(prices.stats(), inventory.stats(), reviews.stats());
+    }
+}
@@ -3,72 +3,32 @@ package com.example.javaconcurrency.retaildemo.concurrency;
 import com.example.javaconcurrency.retaildemo.model.ProductDetails;
 import com.example.javaconcurrency.retaildemo.service.RetailService;
 
-import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 public class CallbackFetcher {
-    public static ProductDetails fetch(String productId) throws InterruptedException {
-        final Double[] price = {null};
-        final Integer[] inventory = {null};
-        final List<String>[] reviews = new List[]{null};
-        final Throwable[] error = {null};
-        final Object lock = new Object();
-        final int[] completedTasks = {0};
-
-        RetailService.fetchPriceAsync(productId,
-            result -> {
-                synchronized (lock) {
-                    price[0] = result;
-                    completedTasks[0]++;
-                    lock.notifyAll();
-                }
-            },
-            err -> {
-                synchronized (lock) {
-                    error[0] = err;
-                    lock.notifyAll();
-                }
-            });
+    private static final int PRICE = 0;
+    private static final int INVENTORY = 1;
+    private static final int REVIEWS = 2;
 
-        RetailService.fetchInventoryAsync(productId,
-            result -> {
-                synchronized (lock) {
-                    inventory[0] = result;
-                    completedTasks[0]++;
-                    lock.notifyAll();
-                }
-            },
-            err -> {
-                synchronized (lock) {
-                    error[0] = err;
-                    lock.notifyAll();
-                }
-            });
+    public static ProductDetails fetch(String productId) throws InterruptedException {
+        return fetch(productId, FetchEngine.shared(FetchEngine.Kind.VIRTUAL));
+    }
 
-        RetailService.fetchReviewsAsync(productId,
-            result -> {
-                synchronized (lock) {
-                    reviews[0] = result;
-                    completedTasks[0]++;
-                    lock.notifyAll();
-                }
-            },
-            err -> {
-                synchronized (lock) {
-                    error[0] = err;
-                    lock.notifyAll();
-                }
-            });
+    public static ProductDetails fetch(String productId, FetchEngine engine) throws InterruptedException {
+        final Executor executor = engine.executor();
+        final CallbackJoin join = new CallbackJoin(3);
 
-        synchronized (lock) {
-            while (completedTasks[0] < 3 && error[0] == null) {
-                lock.wait();
-            }
-        }
+        RetailService.fetchPriceAsync(productId, join.onDouble(PRICE), join.onError(), executor);
+        RetailService.fetchInventoryAsync(productId, join.onInt(INVENTORY), join.onError(), executor);
+        RetailService.fetchReviewsAsync(productId, join.onSuccess(REVIEWS), join.onError(), executor);
 
-        if (error[0] != null) {
-            throw new RuntimeException("Callback fetch failed", error[0]);
+        try {
+            join.await();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Callback fetch failed", e.getCause());
         }
 
-        return new ProductDetails(price[0], inventory[0], reviews[0]);
+        return new ProductDetails(join.getDouble(PRICE), join.getInt(INVENTORY), join.get(REVIEWS));
     }
-}
\ No newline at end of file
+}
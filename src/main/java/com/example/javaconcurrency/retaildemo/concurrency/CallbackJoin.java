@@ -0,0 +1,198 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Lock-free N-way join for callback-style APIs.
+ * <p>
+ * Each of the {@code parties} callbacks delivers its result into its own slot and counts
+ * down a single atomic state word; the first error flips the state to failed so the waiter
+ * returns immediately instead of waiting for the remaining callbacks. Completion never takes
+ * a monitor, so neither the callback threads nor a virtual-thread waiter get pinned.
+ * <p>
+ * Primitive results can be delivered through {@link #onDouble} / {@link #onInt}, which store
+ * them unboxed. A join supports exactly one waiting thread. Callbacks that arrive after the
+ * join has failed are ignored.
+ */
+public final class CallbackJoin {
+    private static final int FAILED = -1;
+    private static final VarHandle STATE;
+    private static final VarHandle FAILURE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            STATE = lookup.findVarHandle(CallbackJoin.class, "state", int.class);
+            FAILURE = lookup.findVarHandle(CallbackJoin.class, "failure", Throwable.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] results;
+    private final long[] primitives;
+    // Callbacks still outstanding, 0 once all succeeded, FAILED after the first error
+    private volatile int state;
+    private volatile Throwable failure;
+    private volatile Thread waiter;
+
+    public CallbackJoin(int parties) {
+        if (parties <= 0) {
+            throw new IllegalArgumentException("parties must be positive: " + parties);
+        }
+        this.results = new Object[parties];
+        this.primitives = new long[parties];
+        this.state = parties;
+    }
+
+    /**
+     * Callback that stores its value in {@code slot} and counts down the join.
+     */
+    public <T> Consumer<T> onSuccess(int slot) {
+        return value -> complete(slot, value);
+    }
+
+    /**
+     * Unboxed variant of {@link #onSuccess} for {@code double} results; read with {@link #getDouble}.
+     */
+    public DoubleConsumer onDouble(int slot) {
+        return value -> {
+            primitives[slot] = Double.doubleToRawLongBits(value);
+            countDown();
+        };
+    }
+
+    /**
+     * Unboxed variant of {@link #onSuccess} for {@code int} results; read with {@link #getInt}.
+     */
+    public IntConsumer onInt(int slot) {
+        return value -> {
+            primitives[slot] = value;
+            countDown();
+        };
+    }
+
+    /**
+     * Callback that fails the join; only the first error is kept.
+     */
+    public Consumer<Throwable> onError() {
+        return this::fail;
+    }
+
+    public void complete(int slot, Object value) {
+        results[slot] = value;
+        countDown();
+    }
+
+    // Slot writes are plain; they are published to the waiter by the volatile CAS on state
+    private void countDown() {
+        int s;
+        do {
+            s = state;
+            if (s <= 0) {
+                return;
+            }
+        } while (!STATE.compareAndSet(this, s, s - 1));
+
+        if (s == 1) {
+            signal();
+        }
+    }
+
+    public void fail(Throwable error) {
+        if (!FAILURE.compareAndSet(this, null, error)) {
+            return;
+        }
+        int s;
+        do {
+            s = state;
+            if (s <= 0) {
+                return;
+            }
+        } while (!STATE.compareAndSet(this, s, FAILED));
+        signal();
+    }
+
+    /**
+     * Waits until every party has completed, or throws the first failure.
+     */
+    public void await() throws InterruptedException, ExecutionException {
+        waiter = Thread.currentThread();
+        try {
+            int s;
+            while ((s = state) > 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (s == FAILED) {
+                throw new ExecutionException(failure);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Timed variant of {@link #await()}.
+     */
+    public void await(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waiter = Thread.currentThread();
+        try {
+            int s;
+            while ((s = state) > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException(s + " of " + results.length + " callbacks still pending");
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (s == FAILED) {
+                throw new ExecutionException(failure);
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    public boolean isDone() {
+        return state <= 0;
+    }
+
+    /**
+     * Result delivered to {@code slot}; only meaningful after a successful {@link #await()}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int slot) {
+        return (T) results[slot];
+    }
+
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble(primitives[slot]);
+    }
+
+    public int getInt(int slot) {
+        return (int) primitives[slot];
+    }
+
+    private void signal() {
+        Thread w = waiter;
+        if (w != null) {
+            LockSupport.unpark(w);
+        }
+    }
+}
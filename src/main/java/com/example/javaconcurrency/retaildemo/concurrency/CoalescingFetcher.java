@@ -0,0 +1,73 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight front for another {@link ProductFetcher}.
+ * <p>
+ * The first caller for a productId runs the delegate on its own thread; callers
+ * arriving for the same productId while that fetch is in flight wait for it and
+ * receive the same {@link ProductDetails} (or the same failure) instead of
+ * issuing their own backend calls. Once the fetch completes the key is released,
+ * so the next caller starts a fresh fetch - nothing is cached.
+ */
+public class CoalescingFetcher implements ProductFetcher {
+    private final ProductFetcher delegate;
+    private final ConcurrentHashMap<String, CompletableFuture<ProductDetails>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaderCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    public CoalescingFetcher(ProductFetcher delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ProductDetails fetch(String productId) throws Exception {
+        CompletableFuture<ProductDetails> call = new CompletableFuture<>();
+        CompletableFuture<ProductDetails> existing = inFlight.putIfAbsent(productId, call);
+        if (existing != null) {
+            coalescedCalls.increment();
+            return await(existing);
+        }
+
+        leaderCalls.increment();
+        try {
+            call.complete(delegate.fetch(productId));
+        } catch (Throwable t) {
+            call.completeExceptionally(t);
+        } finally {
+            inFlight.remove(productId, call);
+        }
+        return await(call);
+    }
+
+    /**
+     * Number of fetches that actually reached the delegate.
+     */
+    public long leaderCalls() {
+        return leaderCalls.sum();
+    }
+
+    /**
+     * Number of fetches that were served by another caller's in-flight fetch.
+     */
+    public long coalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    private static ProductDetails await(CompletableFuture<ProductDetails> call) throws Exception {
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
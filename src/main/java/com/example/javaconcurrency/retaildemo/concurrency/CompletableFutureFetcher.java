@@ -5,17 +5,23 @@ import com.example.javaconcurrency.retaildemo.service.RetailService;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class CompletableFutureFetcher {
     public static ProductDetails fetch(String productId) {
+        return fetch(productId, FetchEngine.shared(FetchEngine.Kind.FORK_JOIN));
+    }
+
+    public static ProductDetails fetch(String productId, FetchEngine engine) {
+        Executor executor = engine.executor();
         CompletableFuture<Double> priceFuture = CompletableFuture.supplyAsync(
-            () -> RetailService.fetchPrice(productId)
+            () -> RetailService.fetchPrice(productId), executor
         );
         CompletableFuture<Integer> inventoryFuture = CompletableFuture.supplyAsync(
-            () -> RetailService.fetchInventory(productId)
+            () -> RetailService.fetchInventory(productId), executor
         );
         CompletableFuture<List<String>> reviewsFuture = CompletableFuture.supplyAsync(
-            () -> RetailService.fetchReviews(productId)
+            () -> RetailService.fetchReviews(productId), executor
         );
 
         return CompletableFuture.allOf(priceFuture, inventoryFuture, reviewsFuture)
@@ -26,4 +32,4 @@ public class CompletableFutureFetcher {
             ))
             .join();
     }
-}
\ No newline at end of file
+}
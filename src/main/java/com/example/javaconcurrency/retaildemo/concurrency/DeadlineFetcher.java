@@ -0,0 +1,70 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches within a latency budget instead of waiting for the slowest backend.
+ * <p>
+ * The budget is turned into one absolute deadline, and each field is awaited only for the
+ * time left until it. Fields that are late or fail are cancelled (interrupting the backend
+ * call) and reported through {@link ProductDetails#getMissingFields()}, late ones also
+ * through {@link ProductDetails#getLateFields()}, so the call returns after at most the
+ * budget with whatever arrived in time.
+ */
+public class DeadlineFetcher {
+    public static ProductDetails fetch(String productId, Duration budget) throws InterruptedException {
+        return fetch(productId, budget, FetchEngine.shared(FetchEngine.Kind.VIRTUAL));
+    }
+
+    public static ProductDetails fetch(String productId, Duration budget, FetchEngine engine)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + budget.toNanos();
+
+        Future<Double> priceFuture = engine.submit(() -> RetailService.fetchPrice(productId));
+        Future<Integer> inventoryFuture = engine.submit(() -> RetailService.fetchInventory(productId));
+        Future<List<String>> reviewsFuture = engine.submit(() -> RetailService.fetchReviews(productId));
+
+        Set<ProductField> late = EnumSet.noneOf(ProductField.class);
+        try {
+            return ProductDetails.partial(
+                awaitUntil(priceFuture, deadline, ProductField.PRICE, late),
+                awaitUntil(inventoryFuture, deadline, ProductField.INVENTORY, late),
+                awaitUntil(reviewsFuture, deadline, ProductField.REVIEWS, late),
+                late
+            );
+        } finally {
+            // Only reached with unfinished futures when interrupted; don't leave them running
+            priceFuture.cancel(true);
+            inventoryFuture.cancel(true);
+            reviewsFuture.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the value if it is available before the deadline, otherwise cancels the
+     * straggler and returns {@code null}, adding {@code field} to {@code late} if it timed out.
+     */
+    private static <T> T awaitUntil(Future<T> future, long deadline, ProductField field, Set<ProductField> late)
+            throws InterruptedException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            late.add(field);
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
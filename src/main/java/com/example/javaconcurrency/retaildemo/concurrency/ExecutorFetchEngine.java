@@ -0,0 +1,40 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@link FetchEngine} backed by a single {@link ExecutorService}.
+ */
+final class ExecutorFetchEngine implements FetchEngine {
+    private final Kind kind;
+    private final ExecutorService executor;
+    private final boolean shared;
+
+    ExecutorFetchEngine(Kind kind, ExecutorService executor, boolean shared) {
+        this.kind = kind;
+        this.executor = executor;
+        this.shared = shared;
+    }
+
+    @Override
+    public Kind kind() {
+        return kind;
+    }
+
+    @Override
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        if (!shared) {
+            executor.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FetchEngine{" + kind + (shared ? ", shared" : "") + "}";
+    }
+}
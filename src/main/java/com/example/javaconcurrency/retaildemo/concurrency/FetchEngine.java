@@ -0,0 +1,47 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The executor a fetch strategy runs its backend calls on.
+ * <p>
+ * Engines are long-lived: create one with {@link #platform}, {@link #virtual} or
+ * {@link #forkJoin} and close it when done, or use {@link #shared(Kind)} for the
+ * process-wide engines the fetchers fall back to. Shared engines use daemon threads,
+ * ignore {@link #close()} and are shut down by a JVM shutdown hook.
+ */
+public interface FetchEngine extends AutoCloseable {
+
+    enum Kind { PLATFORM, VIRTUAL, FORK_JOIN }
+
+    Kind kind();
+
+    ExecutorService executor();
+
+    default <T> Future<T> submit(Callable<T> task) {
+        return executor().submit(task);
+    }
+
+    @Override
+    void close();
+
+    static FetchEngine platform(int threads) {
+        return new ExecutorFetchEngine(Kind.PLATFORM, Executors.newFixedThreadPool(threads), false);
+    }
+
+    static FetchEngine virtual() {
+        return new ExecutorFetchEngine(Kind.VIRTUAL, Executors.newVirtualThreadPerTaskExecutor(), false);
+    }
+
+    static FetchEngine forkJoin(int parallelism) {
+        return new ExecutorFetchEngine(Kind.FORK_JOIN, new ForkJoinPool(parallelism), false);
+    }
+
+    static FetchEngine shared(Kind kind) {
+        return SharedFetchEngines.get(kind);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+import com.example.javaconcurrency.retaildemo.service.RetailService;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fetches with hedged requests for the inventory and reviews backends.
+ * <p>
+ * Each hedged call starts one attempt and waits up to that backend's observed p95 latency.
+ * If the attempt is still running it launches a duplicate, takes whichever answers first and
+ * cancels the other. The call fails only when every attempt failed. Price is fetched once,
+ * as in {@link VirtualThreadFetcher}.
+ * <p>
+ * The per-field calls run on the given engine, but the attempts always run on the shared
+ * virtual-thread engine: a bounded engine could otherwise fill every worker with calls
+ * waiting for attempts that have no worker left to run on.
+ */
+public class HedgingFetcher implements ProductFetcher {
+    private static final int WINDOW_SIZE = 1024;
+    private static final double HEDGE_PERCENTILE = 0.95;
+
+    private final FetchEngine engine;
+    private final FetchEngine attempts = FetchEngine.shared(FetchEngine.Kind.VIRTUAL);
+    private final Map<ProductField, LatencyTracker> trackers = new EnumMap<>(ProductField.class);
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public HedgingFetcher() {
+        this(FetchEngine.shared(FetchEngine.Kind.VIRTUAL), Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param initialHedgeDelay delay used until a backend has reported enough latencies
+     */
+    public HedgingFetcher(FetchEngine engine, Duration initialHedgeDelay) {
+        this.engine = engine;
+        for (ProductField field : List.of(ProductField.INVENTORY, ProductField.REVIEWS)) {
+            trackers.put(field, new LatencyTracker(WINDOW_SIZE, HEDGE_PERCENTILE, initialHedgeDelay.toNanos()));
+        }
+    }
+
+    @Override
+    public ProductDetails fetch(String productId) throws Exception {
+        Future<Double> priceFuture = engine.submit(() -> RetailService.fetchPrice(productId));
+        Future<Integer> inventoryFuture = engine.submit(
+            () -> hedged(() -> RetailService.fetchInventory(productId), trackers.get(ProductField.INVENTORY)));
+        Future<List<String>> reviewsFuture = engine.submit(
+            () -> hedged(() -> RetailService.fetchReviews(productId), trackers.get(ProductField.REVIEWS)));
+
+        return new ProductDetails(
+            priceFuture.get(),
+            inventoryFuture.get(),
+            reviewsFuture.get()
+        );
+    }
+
+    /**
+     * Number of duplicate requests launched.
+     */
+    public long hedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * Number of hedged calls answered by the duplicate rather than the original attempt.
+     */
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    private <T> T hedged(Callable<T> call, LatencyTracker tracker) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        Future<?> primary = attempt(call, tracker, result, outstanding, false);
+        Future<?> hedge = null;
+        try {
+            try {
+                return result.get(tracker.percentileNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Hedge only while the primary is outstanding; had it just failed as the last
+                // attempt, the result would fail with a hedge already on its way
+                if (outstanding.getAndUpdate(n -> n == 0 ? 0 : n + 1) > 0) {
+                    hedges.increment();
+                    hedge = attempt(call, tracker, result, outstanding, true);
+                }
+                return result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<?> attempt(Callable<T> call, LatencyTracker tracker, CompletableFuture<T> result,
+                                  AtomicInteger outstanding, boolean isHedge) {
+        return attempts.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                T value = call.call();
+                tracker.record(System.nanoTime() - start);
+                if (result.complete(value) && isHedge) {
+                    hedgeWins.increment();
+                }
+            } catch (Throwable t) {
+                if (result.isDone()) {
+                    // Cancelled as the loser: its latency is at least this long, and leaving
+                    // slow attempts out would drag the hedge delay down
+                    tracker.record(System.nanoTime() - start);
+                }
+                // The loser is cancelled once the winner completes; only the last failure counts
+                if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(t);
+                }
+            }
+            return null;
+        });
+    }
+}
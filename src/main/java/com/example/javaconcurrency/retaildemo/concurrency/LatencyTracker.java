@@ -0,0 +1,57 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling window of the most recent latencies of one backend.
+ * <p>
+ * Recording is a single atomic increment plus an array store. The configured percentile is
+ * recomputed from a sorted copy of the window every {@code RECOMPUTE_EVERY} samples and
+ * cached, so reading it is a volatile load.
+ */
+public class LatencyTracker {
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final AtomicLongArray window;
+    private final AtomicLong recorded = new AtomicLong();
+    private final double percentile;
+    private volatile long cachedPercentileNanos;
+
+    public LatencyTracker(int windowSize, double percentile, long initialEstimateNanos) {
+        this.window = new AtomicLongArray(windowSize);
+        this.percentile = percentile;
+        this.cachedPercentileNanos = initialEstimateNanos;
+    }
+
+    public void record(long latencyNanos) {
+        long n = recorded.getAndIncrement();
+        window.set((int) (n % window.length()), latencyNanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            cachedPercentileNanos = computePercentile();
+        }
+    }
+
+    /**
+     * The tracked percentile, or the initial estimate until enough samples have been seen.
+     */
+    public long percentileNanos() {
+        return cachedPercentileNanos;
+    }
+
+    public long count() {
+        return recorded.get();
+    }
+
+    private long computePercentile() {
+        int size = (int) Math.min(recorded.get(), window.length());
+        long[] samples = new long[size];
+        for (int i = 0; i < size; i++) {
+            samples[i] = window.get(i);
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return samples[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import com.example.javaconcurrency.retaildemo.model.ProductDetails;
+
+/**
+ * A strategy that assembles {@link ProductDetails} for a single product.
+ * The static {@code fetch} methods of the fetchers in this package can be
+ * used directly as method references, e.g. {@code VirtualThreadFetcher::fetch}.
+ */
+@FunctionalInterface
+public interface ProductFetcher {
+    ProductDetails fetch(String productId) throws Exception;
+}
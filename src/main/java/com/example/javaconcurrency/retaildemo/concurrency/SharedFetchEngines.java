@@ -0,0 +1,39 @@
+package com.example.javaconcurrency.retaildemo.concurrency;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lazily initialised holder for the process-wide engines returned by
+ * {@link FetchEngine#shared(FetchEngine.Kind)}. The platform pool size can be set with
+ * {@code -Dretaildemo.platform.threads}.
+ */
+final class SharedFetchEngines {
+    private static final int PLATFORM_THREADS = Integer.getInteger("retaildemo.platform.threads", 200);
+    private static final Map<FetchEngine.Kind, FetchEngine> ENGINES = new EnumMap<>(FetchEngine.Kind.class);
+
+    static {
+        ENGINES.put(FetchEngine.Kind.PLATFORM, new ExecutorFetchEngine(FetchEngine.Kind.PLATFORM,
+                Executors.newFixedThreadPool(PLATFORM_THREADS,
+                        Thread.ofPlatform().name("fetch-platform-", 0).daemon(true).factory()),
+                true));
+        ENGINES.put(FetchEngine.Kind.VIRTUAL, new ExecutorFetchEngine(FetchEngine.Kind.VIRTUAL,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fetch-virtual-", 0).factory()),
+                true));
+        ENGINES.put(FetchEngine.Kind.FORK_JOIN, new ExecutorFetchEngine(FetchEngine.Kind.FORK_JOIN,
+                new ForkJoinPool(Runtime.getRuntime().availableProcessors()),
+                true));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                ENGINES.values().forEach(engine -> engine.executor().shutdownNow())));
+    }
+
+    private SharedFetchEngines() {
+    }
+
+    static FetchEngine get(FetchEngine.Kind kind) {
+        return ENGINES.get(kind);
+    }
+}
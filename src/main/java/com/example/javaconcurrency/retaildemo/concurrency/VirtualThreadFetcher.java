@@ -4,22 +4,30 @@ import com.example.javaconcurrency.retaildemo.model.ProductDetails;
 import com.example.javaconcurrency.retaildemo.service.RetailService;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 public class VirtualThreadFetcher {
     public static ProductDetails fetch(String productId) throws Exception {
-        try (ExecutorService virtualThreadExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
-            Future<Double> priceFuture = virtualThreadExecutor.submit(() -> RetailService.fetchPrice(productId));
-            Future<Integer> inventoryFuture = virtualThreadExecutor.submit(() -> RetailService.fetchInventory(productId));
-            Future<List<String>> reviewsFuture = virtualThreadExecutor.submit(() -> RetailService.fetchReviews(productId));
+        return fetch(productId, FetchEngine.shared(FetchEngine.Kind.VIRTUAL));
+    }
+
+    public static ProductDetails fetch(String productId, FetchEngine engine) throws Exception {
+        Future<Double> priceFuture = engine.submit(() -> RetailService.fetchPrice(productId));
+        Future<Integer> inventoryFuture = engine.submit(() -> RetailService.fetchInventory(productId));
+        Future<List<String>> reviewsFuture = engine.submit(() -> RetailService.fetchReviews(productId));
 
+        try {
             return new ProductDetails(
                 priceFuture.get(),
                 inventoryFuture.get(),
                 reviewsFuture.get()
             );
+        } finally {
+            // Only reached with unfinished futures when a fetch failed or the caller was
+            // interrupted; the shared engine would otherwise keep running them
+            priceFuture.cancel(true);
+            inventoryFuture.cancel(true);
+            reviewsFuture.cancel(true);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,158 @@
 package com.example.javaconcurrency.retaildemo.model;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Product page data assembled from the price, inventory and reviews backends.
+ * <p>
+ * A degraded instance lists the fields that could not be fetched in {@link #getMissingFields()};
+ * those fields hold placeholders ({@code NaN} price, zero inventory, no reviews). Of those,
+ * {@link #getLateFields()} did not answer in time and {@link #getFailedFields()} answered
+ * with an error.
+ */
 public class ProductDetails {
     private final double price;
     private final int inventory;
     private final List<String> reviews;
+    private final Set<ProductField> missingFields;
+    private final Set<ProductField> lateFields;
 
     public ProductDetails(double price, int inventory, List<String> reviews) {
+        this(price, inventory, reviews, Collections.emptySet());
+    }
+
+    public ProductDetails(double price, int inventory, List<String> reviews, Set<ProductField> missingFields) {
+        this(price, inventory, reviews, missingFields, Collections.emptySet());
+    }
+
+    /**
+     * @param lateFields the missing fields that timed out rather than failed; a subset of
+     *                   {@code missingFields}
+     */
+    public ProductDetails(double price, int inventory, List<String> reviews, Set<ProductField> missingFields,
+                          Set<ProductField> lateFields) {
+        if (!missingFields.containsAll(lateFields)) {
+            throw new IllegalArgumentException("Late fields " + lateFields + " are not all missing: " + missingFields);
+        }
         this.price = price;
         this.inventory = inventory;
         this.reviews = reviews;
+        this.missingFields = copy(missingFields);
+        this.lateFields = copy(lateFields);
+    }
+
+    /**
+     * Builds a possibly degraded instance; a {@code null} argument marks that field as missing.
+     */
+    public static ProductDetails partial(Double price, Integer inventory, List<String> reviews) {
+        return partial(price, inventory, reviews, Collections.emptySet());
+    }
+
+    /**
+     * Like {@link #partial(Double, Integer, List)}, recording which missing fields were late.
+     */
+    public static ProductDetails partial(Double price, Integer inventory, List<String> reviews,
+                                         Set<ProductField> lateFields) {
+        Set<ProductField> missing = EnumSet.noneOf(ProductField.class);
+        if (price == null) {
+            missing.add(ProductField.PRICE);
+        }
+        if (inventory == null) {
+            missing.add(ProductField.INVENTORY);
+        }
+        if (reviews == null) {
+            missing.add(ProductField.REVIEWS);
+        }
+        return new ProductDetails(
+                price != null ? price : Double.NaN,
+                inventory != null ? inventory : 0,
+                reviews != null ? reviews : List.of(),
+                missing,
+                lateFields);
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getInventory() {
+        return inventory;
+    }
+
+    public List<String> getReviews() {
+        return reviews;
+    }
+
+    public Set<ProductField> getMissingFields() {
+        return missingFields;
+    }
+
+    /**
+     * The missing fields whose backend did not answer in time.
+     */
+    public Set<ProductField> getLateFields() {
+        return lateFields;
+    }
+
+    /**
+     * The missing fields whose backend answered with an error.
+     */
+    public Set<ProductField> getFailedFields() {
+        if (lateFields.isEmpty()) {
+            return missingFields;
+        }
+        Set<ProductField> failed = EnumSet.noneOf(ProductField.class);
+        failed.addAll(missingFields);
+        failed.removeAll(lateFields);
+        return Collections.unmodifiableSet(failed);
+    }
+
+    public boolean isMissing(ProductField field) {
+        return missingFields.contains(field);
+    }
+
+    public boolean isLate(ProductField field) {
+        return lateFields.contains(field);
+    }
+
+    public boolean isComplete() {
+        return missingFields.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductDetails other)) {
+            return false;
+        }
+        return Double.compare(price, other.price) == 0
+                && inventory == other.inventory
+                && reviews.equals(other.reviews)
+                && missingFields.equals(other.missingFields)
+                && lateFields.equals(other.lateFields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(price, inventory, reviews, missingFields, lateFields);
     }
 
     @Override
     public String toString() {
-        return "ProductDetails{price=" + price + ", inventory=" + inventory + ", reviews=" + reviews + "}";
+        return "ProductDetails{price=" + price + ", inventory=" + inventory + ", reviews=" + reviews
+                + (isComplete() ? "" : ", missing=" + missingFields)
+                + (lateFields.isEmpty() ? "" : ", late=" + lateFields) + "}";
+    }
+
+    private static Set<ProductField> copy(Set<ProductField> fields) {
+        return fields.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(fields));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.example.javaconcurrency.retaildemo.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary encoding of {@link ProductDetails} written straight into a {@link ByteBuffer}
+ * (heap or direct), without an intermediate {@code String} or byte array per message.
+ * <pre>
+ * byte   field bitmask: bit n = ProductField ordinal n is missing, bit 4 + n = it was late
+ * double price
+ * int    inventory
+ * short  review count, then per review: short length + UTF-8 bytes
+ * </pre>
+ * Counts and lengths are unsigned, so up to 65535 reviews of up to 65535 bytes each.
+ * Review bytes come from the {@link ReviewPool}, so pooled texts are encoded only once.
+ */
+public class ProductDetailsCodec {
+    private static final int LATE_SHIFT = 4;
+    private static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+
+    private final ReviewPool reviewPool;
+
+    public ProductDetailsCodec(ReviewPool reviewPool) {
+        this.reviewPool = reviewPool;
+    }
+
+    public int encodedSize(ProductDetails details) {
+        int size = Byte.BYTES + Double.BYTES + Integer.BYTES + Short.BYTES;
+        for (String review : details.getReviews()) {
+            size += Short.BYTES + reviewPool.utf8(review).length;
+        }
+        return size;
+    }
+
+    /**
+     * Writes {@code details} at the buffer's position.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer has less than
+     *         {@link #encodedSize} bytes remaining
+     * @throws IllegalArgumentException if there are more than 65535 reviews or a review is
+     *         longer than 65535 bytes; nothing is written then
+     */
+    public void write(ProductDetails details, ByteBuffer buffer) {
+        List<String> reviews = details.getReviews();
+        checkUnsignedShort(reviews.size(), "review count");
+        for (String review : reviews) {
+            checkUnsignedShort(reviewPool.utf8(review).length, "review length");
+        }
+
+        int flags = 0;
+        for (ProductField field : details.getMissingFields()) {
+            flags |= 1 << field.ordinal();
+        }
+        for (ProductField field : details.getLateFields()) {
+            flags |= 1 << (LATE_SHIFT + field.ordinal());
+        }
+        buffer.put((byte) flags);
+        buffer.putDouble(details.getPrice());
+        buffer.putInt(details.getInventory());
+
+        buffer.putShort((short) reviews.size());
+        for (int i = 0; i < reviews.size(); i++) {
+            byte[] utf8 = reviewPool.utf8(reviews.get(i));
+            buffer.putShort((short) utf8.length);
+            buffer.put(utf8);
+        }
+    }
+
+    public ProductDetails read(ByteBuffer buffer) {
+        int flags = buffer.get();
+        double price = buffer.getDouble();
+        int inventory = buffer.getInt();
+
+        int count = Short.toUnsignedInt(buffer.getShort());
+        List<String> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] utf8 = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(utf8);
+            reviews.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+
+        Set<ProductField> missingFields = EnumSet.noneOf(ProductField.class);
+        Set<ProductField> lateFields = EnumSet.noneOf(ProductField.class);
+        for (ProductField field : ProductField.values()) {
+            if ((flags & (1 << field.ordinal())) != 0) {
+                missingFields.add(field);
+            }
+            if ((flags & (1 << (LATE_SHIFT + field.ordinal()))) != 0) {
+                lateFields.add(field);
+            }
+        }
+        return new ProductDetails(price, inventory, reviewPool.intern(reviews), missingFields, lateFields);
+    }
+
+    private static void checkUnsignedShort(int value, String what) {
+        if (value > MAX_UNSIGNED_SHORT) {
+            throw new IllegalArgumentException(what + " " + value + " exceeds " + MAX_UNSIGNED_SHORT);
+        }
+    }
+}
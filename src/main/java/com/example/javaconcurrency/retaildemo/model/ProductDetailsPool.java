@@ -0,0 +1,44 @@
+package com.example.javaconcurrency.retaildemo.model;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flyweight factory for {@link ProductDetails}.
+ * <p>
+ * Review lists always go through a {@link ReviewPool}. When instance sharing is enabled,
+ * products with identical price, inventory and reviews also share a single
+ * {@code ProductDetails}, up to {@code maxInstances} distinct values.
+ */
+public class ProductDetailsPool {
+    private final ReviewPool reviewPool;
+    private final boolean shareInstances;
+    private final int maxInstances;
+    private final ConcurrentHashMap<ProductDetails, ProductDetails> instances = new ConcurrentHashMap<>();
+
+    public ProductDetailsPool(ReviewPool reviewPool, boolean shareInstances, int maxInstances) {
+        this.reviewPool = reviewPool;
+        this.shareInstances = shareInstances;
+        this.maxInstances = maxInstances;
+    }
+
+    public ProductDetails of(double price, int inventory, List<String> reviews) {
+        ProductDetails details = new ProductDetails(price, inventory, reviewPool.intern(reviews));
+        if (!shareInstances) {
+            return details;
+        }
+        ProductDetails shared = instances.get(details);
+        if (shared != null) {
+            return shared;
+        }
+        if (instances.size() >= maxInstances) {
+            return details;
+        }
+        shared = instances.putIfAbsent(details, details);
+        return shared != null ? shared : details;
+    }
+
+    public ReviewPool reviewPool() {
+        return reviewPool;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.javaconcurrency.retaildemo.model;
+
+/**
+ * The independently fetched parts of {@link ProductDetails}, one per backend call.
+ */
+public enum ProductField {
+    PRICE, INVENTORY, REVIEWS
+}
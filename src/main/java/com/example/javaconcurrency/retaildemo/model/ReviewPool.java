@@ -0,0 +1,70 @@
+package com.example.javaconcurrency.retaildemo.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of review text and review lists.
+ * <p>
+ * Catalogues repeat the same reviews across many products and every fetch returns fresh copies
+ * of them. Interning keeps one {@code String} per distinct text, together with its UTF-8 bytes
+ * for {@link ProductDetailsCodec}, and one immutable list per distinct review list. The pool
+ * stops growing at {@code maxEntries}; values beyond that are returned as given.
+ */
+public class ReviewPool {
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, PooledText> texts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<List<String>, List<String>> lists = new ConcurrentHashMap<>();
+
+    public ReviewPool(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public String intern(String text) {
+        PooledText pooled = lookup(text);
+        return pooled != null ? pooled.text : text;
+    }
+
+    public List<String> intern(List<String> reviews) {
+        List<String> canonical = lists.get(reviews);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (lists.size() >= maxEntries) {
+            return reviews;
+        }
+        String[] interned = new String[reviews.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = intern(reviews.get(i));
+        }
+        List<String> candidate = List.of(interned);
+        List<String> existing = lists.putIfAbsent(candidate, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    /**
+     * UTF-8 encoding of {@code text}, cached for pooled texts.
+     */
+    public byte[] utf8(String text) {
+        PooledText pooled = lookup(text);
+        return pooled != null ? pooled.utf8 : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return texts.size() + lists.size();
+    }
+
+    private PooledText lookup(String text) {
+        PooledText pooled = texts.get(text);
+        if (pooled != null || texts.size() >= maxEntries) {
+            return pooled;
+        }
+        PooledText candidate = new PooledText(text, text.getBytes(StandardCharsets.UTF_8));
+        PooledText existing = texts.putIfAbsent(text, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    private record PooledText(String text, byte[] utf8) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.javaconcurrency.retaildemo.service;
+
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+
+/**
+ * A simulated backend call that failed or exceeded its endpoint timeout.
+ */
+public class BackendException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final ProductField endpoint;
+    private final boolean timedOut;
+
+    public BackendException(ProductField endpoint, boolean timedOut, String message) {
+        super(message);
+        this.endpoint = endpoint;
+        this.timedOut = timedOut;
+    }
+
+    public ProductField getEndpoint() {
+        return endpoint;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.javaconcurrency.retaildemo.service;
+
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates the price, inventory and reviews backends behind {@link RetailService}.
+ * <p>
+ * Every call sleeps for a latency drawn from its endpoint's {@link EndpointProfile}, fails
+ * with the configured probability, and gives up with a timeout once the timeout is shorter
+ * than the drawn latency. The n-th call to an endpoint always draws from the same random
+ * stream for a given seed, so a run is reproducible no matter which threads make the calls.
+ */
+public class BackendSimulator {
+    private final long seed;
+    private final Map<ProductField, EndpointProfile> profiles;
+    private final Map<ProductField, AtomicLong> callCounters = new EnumMap<>(ProductField.class);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private BackendSimulator(long seed, Map<ProductField, EndpointProfile> profiles) {
+        this.seed = seed;
+        this.profiles = new EnumMap<>(profiles);
+        for (ProductField endpoint : ProductField.values()) {
+            if (!this.profiles.containsKey(endpoint)) {
+                throw new IllegalArgumentException("No profile for endpoint " + endpoint);
+            }
+            callCounters.put(endpoint, new AtomicLong());
+        }
+    }
+
+    /**
+     * Every endpoint answers after exactly {@code latency} and never fails.
+     */
+    public static BackendSimulator fixed(Duration latency) {
+        return builder().allEndpoints(EndpointProfile.of(LatencyModel.fixed(latency))).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Copy of this simulator with one endpoint's profile replaced and fresh call counters.
+     */
+    public BackendSimulator withProfile(ProductField endpoint, EndpointProfile profile) {
+        Map<ProductField, EndpointProfile> updated = new EnumMap<>(profiles);
+        updated.put(endpoint, profile);
+        return new BackendSimulator(seed, updated);
+    }
+
+    public EndpointProfile profile(ProductField endpoint) {
+        return profiles.get(endpoint);
+    }
+
+    /**
+     * Performs one simulated call to {@code endpoint}.
+     *
+     * @throws BackendException when the call fails or times out
+     */
+    public void call(ProductField endpoint) throws InterruptedException {
+        EndpointProfile profile = profiles.get(endpoint);
+        long n = callCounters.get(endpoint).getAndIncrement();
+        SplittableRandom random = new SplittableRandom(seed ^ (n * 0x9E3779B97F4A7C15L + endpoint.ordinal()));
+
+        Duration latency = profile.latency().sample(random);
+        if (latency.compareTo(profile.timeout()) > 0) {
+            Thread.sleep(profile.timeout());
+            timeouts.increment();
+            throw new BackendException(endpoint, true,
+                    endpoint + " timed out after " + profile.timeout().toMillis() + " ms");
+        }
+
+        Thread.sleep(latency);
+        if (random.nextDouble() < profile.failureRate()) {
+            failures.increment();
+            throw new BackendException(endpoint, false, endpoint + " backend unavailable");
+        }
+    }
+
+    public long calls(ProductField endpoint) {
+        return callCounters.get(endpoint).get();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public static class Builder {
+        private long seed = 42;
+        private final Map<ProductField, EndpointProfile> profiles = new EnumMap<>(ProductField.class);
+
+        private Builder() {
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder endpoint(ProductField endpoint, EndpointProfile profile) {
+            profiles.put(endpoint, profile);
+            return this;
+        }
+
+        public Builder allEndpoints(EndpointProfile profile) {
+            for (ProductField endpoint : ProductField.values()) {
+                profiles.put(endpoint, profile);
+            }
+            return this;
+        }
+
+        public BackendSimulator build() {
+            return new BackendSimulator(seed, profiles);
+        }
+    }
+}
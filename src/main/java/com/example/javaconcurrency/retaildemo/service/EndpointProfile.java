@@ -0,0 +1,34 @@
+package com.example.javaconcurrency.retaildemo.service;
+
+import java.time.Duration;
+
+/**
+ * Simulated behaviour of one backend endpoint: its latency distribution, the share of calls
+ * that fail outright, and the client timeout after which a slow call is abandoned.
+ */
+public record EndpointProfile(LatencyModel latency, double failureRate, Duration timeout) {
+
+    public static final Duration NO_TIMEOUT = Duration.ofDays(1);
+
+    public EndpointProfile {
+        if (failureRate < 0.0 || failureRate > 1.0) {
+            throw new IllegalArgumentException("failureRate must be within [0, 1]: " + failureRate);
+        }
+    }
+
+    public static EndpointProfile of(LatencyModel latency) {
+        return new EndpointProfile(latency, 0.0, NO_TIMEOUT);
+    }
+
+    public EndpointProfile withLatency(LatencyModel latency) {
+        return new EndpointProfile(latency, failureRate, timeout);
+    }
+
+    public EndpointProfile withFailureRate(double failureRate) {
+        return new EndpointProfile(latency, failureRate, timeout);
+    }
+
+    public EndpointProfile withTimeout(Duration timeout) {
+        return new EndpointProfile(latency, failureRate, timeout);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.javaconcurrency.retaildemo.service;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution the simulated {@link RetailService} backends draw their response time from.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+    Duration sample(RandomGenerator random);
+
+    static LatencyModel fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyModel uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long maxNanos = max.toNanos();
+        return random -> Duration.ofNanos(minNanos == maxNanos ? minNanos : random.nextLong(minNanos, maxNanos));
+    }
+
+    /**
+     * Right-skewed latency typical of real services: most calls near {@code median}, with a
+     * long tail whose weight grows with {@code sigma} (0.5 is moderate, 1.0 heavy).
+     */
+    static LatencyModel logNormal(Duration median, double sigma) {
+        double mu = Math.log(median.toNanos());
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Mostly {@code fast}, but a {@code slowProbability} share of calls takes {@code slow} -
+     * a replica stuck in GC, a cold cache, a retried packet.
+     */
+    static LatencyModel bimodal(Duration fast, Duration slow, double slowProbability) {
+        return bimodal(fixed(fast), fixed(slow), slowProbability);
+    }
+
+    static LatencyModel bimodal(LatencyModel fast, LatencyModel slow, double slowProbability) {
+        return random -> random.nextDouble() < slowProbability ? slow.sample(random) : fast.sample(random);
+    }
+}
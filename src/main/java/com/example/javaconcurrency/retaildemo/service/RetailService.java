@@ -1,12 +1,52 @@
 package com.example.javaconcurrency.retaildemo.service;
 
+import com.example.javaconcurrency.retaildemo.model.ProductField;
+
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
 
 public class RetailService {
+    // Simulated backends; default latency from -Dretaildemo.latency.ms
+    private static volatile Duration latency = Duration.ofMillis(Long.getLong("retaildemo.latency.ms", 1000));
+    private static volatile BackendSimulator simulator = BackendSimulator.fixed(latency);
+
+    public static BackendSimulator getSimulator() {
+        return simulator;
+    }
+
+    public static void setSimulator(BackendSimulator simulator) {
+        RetailService.simulator = simulator;
+    }
+
+    /**
+     * The fixed latency last set with {@link #setLatency}; endpoints given their own latency
+     * model or simulator since may differ.
+     */
+    public static Duration getLatency() {
+        return latency;
+    }
+
+    /**
+     * Uses the same fixed latency for every endpoint, with no failures.
+     */
+    public static void setLatency(Duration latency) {
+        RetailService.latency = latency;
+        setSimulator(BackendSimulator.fixed(latency));
+    }
+
+    public static synchronized void setLatencyModel(ProductField endpoint, LatencyModel model) {
+        simulator = simulator.withProfile(endpoint, simulator.profile(endpoint).withLatency(model));
+    }
+
     public static double fetchPrice(String productId) {
         try {
-            Thread.sleep(1000); // Simulate I/O delay
+            simulator.call(ProductField.PRICE); // Simulate I/O delay
             return 99.99;
         } catch (InterruptedException e) {
             throw new RuntimeException("Price fetch failed", e);
@@ -15,7 +55,7 @@ public class RetailService {
 
     public static int fetchInventory(String productId) {
         try {
-            Thread.sleep(1000); // Simulate I/O delay
+            simulator.call(ProductField.INVENTORY); // Simulate I/O delay
             return 50;
         } catch (InterruptedException e) {
             throw new RuntimeException("Inventory fetch failed", e);
@@ -24,43 +64,97 @@ public class RetailService {
 
     public static List<String> fetchReviews(String productId) {
         try {
-            Thread.sleep(1000); // Simulate I/O delay
+            simulator.call(ProductField.REVIEWS); // Simulate I/O delay
             return List.of("Great product!", "Highly recommended");
         } catch (InterruptedException e) {
             throw new RuntimeException("Reviews fetch failed", e);
         }
     }
 
+    public static Map<String, Double> fetchPricesBatch(List<String> productIds) {
+        try {
+            simulator.call(ProductField.PRICE); // Simulate I/O delay, one round-trip for the whole batch
+            Map<String, Double> prices = new HashMap<>();
+            for (String productId : productIds) {
+                prices.put(productId, 99.99);
+            }
+            return prices;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Batch price fetch failed", e);
+        }
+    }
+
+    public static Map<String, Integer> fetchInventoryBatch(List<String> productIds) {
+        try {
+            simulator.call(ProductField.INVENTORY); // Simulate I/O delay, one round-trip for the whole batch
+            Map<String, Integer> inventory = new HashMap<>();
+            for (String productId : productIds) {
+                inventory.put(productId, 50);
+            }
+            return inventory;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Batch inventory fetch failed", e);
+        }
+    }
+
+    public static Map<String, List<String>> fetchReviewsBatch(List<String> productIds) {
+        try {
+            simulator.call(ProductField.REVIEWS); // Simulate I/O delay, one round-trip for the whole batch
+            Map<String, List<String>> reviews = new HashMap<>();
+            for (String productId : productIds) {
+                reviews.put(productId, List.of("Great product!", "Highly recommended"));
+            }
+            return reviews;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Batch reviews fetch failed", e);
+        }
+    }
+
     public static void fetchPriceAsync(String productId, Consumer<Double> callback, Consumer<Throwable> errorCallback) {
-        new Thread(() -> {
+        fetchPriceAsync(productId, (DoubleConsumer) callback::accept, errorCallback, task -> new Thread(task).start());
+    }
+
+    public static void fetchPriceAsync(String productId, DoubleConsumer callback, Consumer<Throwable> errorCallback,
+            Executor executor) {
+        executor.execute(() -> {
             try {
                 double price = fetchPrice(productId);
                 callback.accept(price);
             } catch (Exception e) {
                 errorCallback.accept(e);
             }
-        }).start();
+        });
     }
 
     public static void fetchInventoryAsync(String productId, Consumer<Integer> callback, Consumer<Throwable> errorCallback) {
-        new Thread(() -> {
+        fetchInventoryAsync(productId, (IntConsumer) callback::accept, errorCallback, task -> new Thread(task).start());
+    }
+
+    public static void fetchInventoryAsync(String productId, IntConsumer callback, Consumer<Throwable> errorCallback,
+            Executor executor) {
+        executor.execute(() -> {
             try {
                 int inventory = fetchInventory(productId);
                 callback.accept(inventory);
             } catch (Exception e) {
                 errorCallback.accept(e);
             }
-        }).start();
+        });
     }
 
     public static void fetchReviewsAsync(String productId, Consumer<List<String>> callback, Consumer<Throwable> errorCallback) {
-        new Thread(() -> {
+        fetchReviewsAsync(productId, callback, errorCallback, task -> new Thread(task).start());
+    }
+
+    public static void fetchReviewsAsync(String productId, Consumer<List<String>> callback, Consumer<Throwable> errorCallback,
+            Executor executor) {
+        executor.execute(() -> {
             try {
                 List<String> reviews = fetchReviews(productId);
                 callback.accept(reviews);
             } catch (Exception e) {
                 errorCallback.accept(e);
             }
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.example.javaconcurrency.structured;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes {@code joinUntil} deadlines from the latency each downstream service has actually
+ * shown, instead of a fixed number of milliseconds.
+ * <p>
+ * Every service gets a rolling {@link LatencyHistogram}. Its timeout is the configured
+ * percentile plus a safety margin, clamped to {@code [minTimeout, maxTimeout]}; until a service
+ * has {@link #MIN_SAMPLES} samples the initial timeout is used. Calls wrapped with
+ * {@link #timed} record their own latency. A call cancelled by the deadline records the time it
+ * had run so far, so a service that keeps timing out pushes its own timeout up rather than
+ * failing forever. A call cancelled earlier, because a sibling failed or the scope shut down,
+ * says nothing about the service and is not recorded.
+ */
+public class AdaptiveDeadline {
+
+    static final int MIN_SAMPLES = 20;
+
+    private final double percentile;
+    private final Duration margin;
+    private final Duration initialTimeout;
+    private final Duration minTimeout;
+    private final Duration maxTimeout;
+    private final Duration window;
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public AdaptiveDeadline(double percentile, Duration margin, Duration initialTimeout,
+                            Duration minTimeout, Duration maxTimeout) {
+        this(percentile, margin, initialTimeout, minTimeout, maxTimeout, Duration.ofMinutes(1));
+    }
+
+    public AdaptiveDeadline(double percentile, Duration margin, Duration initialTimeout,
+                            Duration minTimeout, Duration maxTimeout, Duration window) {
+        this.percentile = percentile;
+        this.margin = margin;
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.window = window;
+    }
+
+    /**
+     * Returns the current timeout for one service.
+     */
+    public Duration timeout(String service) {
+        var histogram = histograms.get(service);
+        if (histogram == null || histogram.count() < MIN_SAMPLES) {
+            return initialTimeout;
+        }
+        var timeout = histogram.percentile(percentile).plus(margin);
+        if (timeout.compareTo(minTimeout) < 0) {
+            return minTimeout;
+        }
+        return timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    /**
+     * Returns a deadline that gives the slowest of the given services its full timeout.
+     */
+    public Instant deadline(String... services) {
+        var longest = Duration.ZERO;
+        for (String service : services) {
+            var timeout = timeout(service);
+            if (timeout.compareTo(longest) > 0) {
+                longest = timeout;
+            }
+        }
+        return Instant.now().plus(longest);
+    }
+
+    /**
+     * Wraps a call so its latency is recorded against {@code service}. {@code deadline} is
+     * the one the scope joins until, so that a cancellation can be told apart from one at
+     * the deadline. Calls that fail for other reasons are not recorded, since fast failures
+     * would drag the timeout down.
+     */
+    public <T> Callable<T> timed(String service, Instant deadline, Callable<T> call) {
+        var histogram = histogram(service);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                T result = call.call();
+                histogram.record(System.nanoTime() - start);
+                return result;
+            } catch (InterruptedException e) {
+                if (!Instant.now().isBefore(deadline)) {
+                    // Cancelled at the deadline: the real latency is at least this long
+                    histogram.record(System.nanoTime() - start);
+                }
+                throw e;
+            }
+        };
+    }
+
+    public void record(String service, Duration latency) {
+        histogram(service).record(latency);
+    }
+
+    public LatencyHistogram histogram(String service) {
+        return histograms.computeIfAbsent(service, name -> new LatencyHistogram(window, 6));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.javaconcurrency.structured;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Limits how many requests each route may have in flight, and rejects the rest immediately so
+ * that admitted requests keep their latency when the server is overloaded.
+ * <p>
+ * A virtual thread per request makes accepting work almost free, which is exactly why an
+ * unprotected server degrades for everyone under a flood: every request is admitted and they
+ * all share the same CPU, heap and backends. Here each route has a concurrency limit. A
+ * request over the limit gets a {@link Permit} of {@code null}, and the server answers it with
+ * a fast 503 and {@code Retry-After}.
+ * <p>
+ * A fixed policy keeps its limit. An adaptive policy adjusts it by AIMD against a latency
+ * target: each request completed within the target while the route is at least half busy
+ * raises the limit by {@code 1 / limit} (about one per full window of requests), and a
+ * request over the target cuts it by 10%, at most once per target interval so one slow burst
+ * does not collapse the limit.
+ */
+public class AdmissionController {
+
+    /**
+     * Limits for one route. {@code latencyTarget} is null for a fixed limit.
+     */
+    public record Policy(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget, Duration retryAfter) {
+
+        public static Policy fixed(int limit, Duration retryAfter) {
+            return new Policy(limit, limit, limit, null, retryAfter);
+        }
+
+        public static Policy adaptive(int initialLimit, int minLimit, int maxLimit,
+                                      Duration latencyTarget, Duration retryAfter) {
+            return new Policy(initialLimit, minLimit, maxLimit, latencyTarget, retryAfter);
+        }
+
+        public boolean adaptive() {
+            return latencyTarget != null;
+        }
+
+        /**
+         * The {@code Retry-After} header value: whole seconds, at least one.
+         */
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        }
+    }
+
+    /**
+     * One admitted request; release it when the response has been sent.
+     */
+    public static final class Permit {
+        private final Limiter limiter;
+        private final long startNanos = System.nanoTime();
+
+        private Permit(Limiter limiter) {
+            this.limiter = limiter;
+        }
+
+        public void release() {
+            limiter.release(System.nanoTime() - startNanos);
+        }
+    }
+
+    private final Policy defaultPolicy;
+    private final ConcurrentHashMap<String, Policy> policies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    public AdmissionController(Policy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    /**
+     * Overloads a route backed by a small "database" (16 connections, 10 ms per query) with
+     * and without admission control, and compares the latency of the requests that were served.
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.setProperty("server.logRequests", "false");
+
+        for (boolean admit : new boolean[] {false, true}) {
+            var database = new Semaphore(16);
+            var admission = new AdmissionController(
+                    Policy.adaptive(100, 16, 10_000, Duration.ofMillis(50), Duration.ofSeconds(1)));
+            try (var server = new NioHttpServer(0)) {
+                server.route("/query", request -> {
+                    database.acquire();
+                    try {
+                        Thread.sleep(10);
+                    } finally {
+                        database.release();
+                    }
+                    return SimpleVirtualThreadServer.hello();
+                });
+                server.admission(admit ? admission : null);
+                server.start();
+
+                var address = new InetSocketAddress("127.0.0.1", server.port());
+                var result = ConnectionLoadGenerator.run(address, connections, requestsPerConnection, "/query", 1);
+                System.out.println((admit ? "With admission:    " : "Without admission: ") + result);
+                if (admit) {
+                    System.out.println("  " + admission.report());
+                }
+            }
+        }
+    }
+
+    /**
+     * The policy used by {@link SimpleVirtualThreadServer} and {@link NioHttpServer}: an
+     * adaptive limit holding {@code /hello} to 50 ms, and a fixed 10,000 concurrent
+     * {@code /sleep} requests since their latency is whatever the client asks for.
+     */
+    public static AdmissionController defaults() {
+        return new AdmissionController(Policy.adaptive(1000, 50, 10_000, Duration.ofMillis(50), Duration.ofSeconds(1)))
+                .route("/sleep", Policy.fixed(10_000, Duration.ofSeconds(5)));
+    }
+
+    /**
+     * Sets the policy of one route; routes without their own policy use the default.
+     */
+    public AdmissionController route(String route, Policy policy) {
+        policies.put(route, policy);
+        limiters.remove(route);
+        return this;
+    }
+
+    /**
+     * Admits a request, or returns null if the route is at its limit.
+     */
+    public Permit tryAcquire(String route) {
+        return limiter(route).tryAcquire();
+    }
+
+    public Policy policy(String route) {
+        return policies.getOrDefault(route, defaultPolicy);
+    }
+
+    public int limit(String route) {
+        return limiter(route).limit();
+    }
+
+    public long rejected(String route) {
+        return limiter(route).rejected.sum();
+    }
+
+    /**
+     * Returns one line per route with its current limit, in-flight count and rejections.
+     */
+    public String report() {
+        List<String> lines = new ArrayList<>();
+        limiters.forEach((route, limiter) -> lines.add(String.format("%s: limit %d, in flight %d, admitted %d, rejected %d",
+                route, limiter.limit(), limiter.inFlight.get(), limiter.admitted.sum(), limiter.rejected.sum())));
+        lines.sort(null);
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private Limiter limiter(String route) {
+        return limiters.computeIfAbsent(route, name -> new Limiter(policy(name)));
+    }
+
+    private static final class Limiter {
+        private final Policy policy;
+        private final long targetNanos;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // The limit is fractional so additive increase can add 1/limit per request
+        private final AtomicLong limitBits;
+        private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        Limiter(Policy policy) {
+            this.policy = policy;
+            this.targetNanos = policy.adaptive() ? policy.latencyTarget().toNanos() : Long.MAX_VALUE;
+            this.limitBits = new AtomicLong(Double.doubleToLongBits(policy.initialLimit()));
+        }
+
+        int limit() {
+            return (int) Double.longBitsToDouble(limitBits.get());
+        }
+
+        Permit tryAcquire() {
+            int limit = limit();
+            while (true) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    rejected.increment();
+                    return null;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    admitted.increment();
+                    return new Permit(this);
+                }
+            }
+        }
+
+        void release(long latencyNanos) {
+            int busy = inFlight.getAndDecrement();
+            if (!policy.adaptive()) {
+                return;
+            }
+            if (latencyNanos > targetNanos) {
+                long now = System.nanoTime();
+                long last = lastDecreaseNanos.get();
+                if (now - last >= targetNanos && lastDecreaseNanos.compareAndSet(last, now)) {
+                    // Multiplicative decrease
+                    update(limit -> Math.max(policy.minLimit(), limit * 0.9));
+                }
+            } else if (busy * 2 >= limit()) {
+                // Additive increase, only while the limit is actually being used
+                update(limit -> Math.min(policy.maxLimit(), limit + 1.0 / limit));
+            }
+        }
+
+        private void update(DoubleUnaryOperator change) {
+            limitBits.updateAndGet(bits -> Double.doubleToLongBits(change.applyAsDouble(Double.longBitsToDouble(bits))));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.javaconcurrency.structured;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receives cache events from {@link ProductDetailsCache}. Implementations must be
+ * thread-safe; they are called from many virtual threads at once.
+ */
+public interface CacheMetrics {
+
+    void recordHit(String section);
+
+    void recordMiss(String section);
+
+    /**
+     * A lookup that joined another caller's in-flight fetch instead of starting its own.
+     */
+    void recordCollapsed();
+
+    /**
+     * Backend calls that were avoided by a cache hit or by request collapsing.
+     */
+    void recordSavedBackendCalls(int calls);
+
+    /**
+     * Simple counter-based implementation.
+     */
+    class Counters implements CacheMetrics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder collapsed = new LongAdder();
+        private final LongAdder savedBackendCalls = new LongAdder();
+
+        @Override
+        public void recordHit(String section) {
+            hits.increment();
+        }
+
+        @Override
+        public void recordMiss(String section) {
+            misses.increment();
+        }
+
+        @Override
+        public void recordCollapsed() {
+            collapsed.increment();
+        }
+
+        @Override
+        public void recordSavedBackendCalls(int calls) {
+            savedBackendCalls.add(calls);
+        }
+
+        public double hitRatio() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total == 0 ? 0.0 : (double) h / total;
+        }
+
+        public long savedBackendCalls() {
+            return savedBackendCalls.sum();
+        }
+
+        public long collapsed() {
+            return collapsed.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("section hits=%d, misses=%d, hit ratio=%.2f, collapsed lookups=%d, saved backend calls=%d",
+                    hits.sum(), misses.sum(), hitRatio(), collapsed.sum(), savedBackendCalls.sum());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.javaconcurrency.structured;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free circuit breaker for one backend.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the circuit opens and calls fail
+ * immediately with {@link CircuitOpenException}, without touching the backend. Once
+ * {@code openDuration} has passed, one caller is let through as a trial: success closes the
+ * circuit again, failure re-opens it.
+ * <p>
+ * A call that ends because its thread was interrupted, such as a subtask cancelled by its
+ * scope, says nothing about the backend and is not counted; an interrupted trial hands the
+ * trial to the next caller. Outcomes of calls admitted while the circuit was closed no
+ * longer count once it has opened.
+ * <p>
+ * The state lives in one immutable snapshot swapped with compare-and-set, so the breaker never
+ * blocks and is safe to use from thousands of virtual threads. Successful calls on a healthy
+ * circuit do not write at all.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private record Status(State state, int consecutiveFailures, long openedAtNanos) {}
+
+    private static final Status HEALTHY = new Status(State.CLOSED, 0, 0);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final AtomicReference<Status> status = new AtomicReference<>(HEALTHY);
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    public <T> T call(Callable<T> call) throws Exception {
+        boolean trial = acquirePermission();
+        T result;
+        try {
+            result = call.call();
+        } catch (Throwable t) {
+            if (isCancellation(t)) {
+                onCancelled(trial);
+            } else {
+                onFailure(trial);
+            }
+            throw t;
+        }
+        onSuccess(trial);
+        return result;
+    }
+
+    public State state() {
+        return status.get().state();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns whether the caller is the half-open trial, or throws if the circuit is open.
+     */
+    private boolean acquirePermission() throws CircuitOpenException {
+        Status current = status.get();
+        if (current.state() == State.CLOSED) {
+            return false;
+        }
+        if (current.state() == State.OPEN
+                && System.nanoTime() - current.openedAtNanos() >= openDurationNanos
+                && status.compareAndSet(current, new Status(State.HALF_OPEN, current.consecutiveFailures(),
+                        current.openedAtNanos()))) {
+            return true;
+        }
+        throw new CircuitOpenException(name);
+    }
+
+    private void onSuccess(boolean trial) {
+        Status current = status.get();
+        if (current != HEALTHY && current.state() == expectedState(trial)) {
+            status.compareAndSet(current, HEALTHY);
+        }
+    }
+
+    private void onCancelled(boolean trial) {
+        Status current = status.get();
+        if (trial && current.state() == State.HALF_OPEN) {
+            // Back to open with the open period already over, so the next caller is the trial
+            status.compareAndSet(current, new Status(State.OPEN, current.consecutiveFailures(), current.openedAtNanos()));
+        }
+    }
+
+    private void onFailure(boolean trial) {
+        while (true) {
+            Status current = status.get();
+            if (current.state() != expectedState(trial)) {
+                return;
+            }
+            int failures = current.consecutiveFailures() + 1;
+            Status next = trial || failures >= failureThreshold
+                    ? new Status(State.OPEN, failures, System.nanoTime())
+                    : new Status(State.CLOSED, failures, 0);
+            if (status.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The state a call's outcome applies to: the trial owns the half-open circuit, other
+     * calls only count while it is closed.
+     */
+    private static State expectedState(boolean trial) {
+        return trial ? State.HALF_OPEN : State.CLOSED;
+    }
+
+    private static boolean isCancellation(Throwable t) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        // Interruption may arrive wrapped, as in RetailService
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Thrown instead of calling a backend whose circuit is open. Carries no stack trace,
+     * so rejecting a call costs next to nothing.
+     */
+    public static class CircuitOpenException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String name) {
+            super("Circuit '" + name + "' is open", null, false, false);
+        }
+    }
+}
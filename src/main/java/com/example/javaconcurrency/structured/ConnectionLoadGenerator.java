@@ -0,0 +1,270 @@
+package com.example.javaconcurrency.structured;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opens many concurrent keep-alive connections against a local server and reports
+ * throughput and latency, to compare {@link SimpleVirtualThreadServer} with
+ * {@link NioHttpServer}.
+ * <p>
+ * Every connection runs on its own virtual thread. All connections are opened first and
+ * released together, then each sends {@code requestsPerConnection} requests, either one at a
+ * time or {@code pipelineDepth} at a time in a single write. Connections are spread over
+ * several loopback source addresses, since one source address runs out of ephemeral ports
+ * at around 28k connections. Only Linux routes all of {@code 127.0.0.0/8} to loopback; where
+ * the extra addresses cannot be bound, every connection uses {@code 127.0.0.1}.
+ * <p>
+ * Usage: {@code ConnectionLoadGenerator [connections] [requestsPerConnection] [path] [pipelineDepth]},
+ * defaulting to 50000 connections, 5 requests each on {@code /sleep?ms=100}. Both servers run
+ * in this JVM, so 50k connections need about 100k file descriptors ({@code ulimit -n}).
+ */
+public class ConnectionLoadGenerator {
+
+    private static final int SOURCE_ADDRESSES = 8;
+
+    public record Result(int connections, int failedConnections, long reconnects, long requests,
+                         long failedRequests, Duration elapsed, long p50Micros, long p99Micros) {
+
+        public double requestsPerSecond() {
+            return requests * 1_000_000_000.0 / Math.max(1, elapsed.toNanos());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d connections (%d failed, %d reconnects), %,d requests (%d failed) "
+                            + "in %d ms: %,.0f req/s, p50 %.1f ms, p99 %.1f ms",
+                    connections, failedConnections, reconnects, requests, failedRequests, elapsed.toMillis(),
+                    requestsPerSecond(), p50Micros / 1000.0, p99Micros / 1000.0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        var path = args.length > 2 ? args[2] : "/sleep?ms=100";
+        int pipelineDepth = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        // The handlers log every sleep unless told otherwise
+        System.setProperty("server.logRequests", "false");
+
+        System.out.println("Load: " + connections + " connections x " + requestsPerConnection
+                + " requests of " + path + ", pipeline depth " + pipelineDepth);
+
+        var httpServer = SimpleVirtualThreadServer.start(0, null);
+        try {
+            var address = new InetSocketAddress("127.0.0.1", httpServer.getAddress().getPort());
+            // The JDK server answers pipelined requests one by one, so it is only driven serially
+            System.out.println("HttpServer:    " + run(address, connections, requestsPerConnection, path, 1));
+        } finally {
+            httpServer.stop(0);
+        }
+
+        try (var nioServer = new NioHttpServer(0)) {
+            nioServer.route("/hello", request -> SimpleVirtualThreadServer.hello());
+            nioServer.route("/sleep", request -> SimpleVirtualThreadServer.sleep(request.query()));
+            nioServer.start();
+            var address = new InetSocketAddress("127.0.0.1", nioServer.port());
+            System.out.println("NioHttpServer: " + run(address, connections, requestsPerConnection, path, pipelineDepth));
+        }
+
+        try (var nioServer = new NioHttpServer(0)) {
+            nioServer.routeDirect("/hello", PreEncodedResponses::hello);
+            nioServer.routeDirect("/sleep", PreEncodedResponses::sleep);
+            nioServer.start();
+            var address = new InetSocketAddress("127.0.0.1", nioServer.port());
+            System.out.println("Pre-encoded:   " + run(address, connections, requestsPerConnection, path, pipelineDepth));
+        }
+    }
+
+    public static Result run(InetSocketAddress server, int connections, int requestsPerConnection,
+                             String path, int pipelineDepth) throws InterruptedException {
+        var request = ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        var counters = new Counters();
+        var connected = new CountDownLatch(connections);
+        var go = new CountDownLatch(1);
+
+        var sources = sourceAddresses();
+
+        long start;
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                var source = sources.get(i % sources.size());
+                clients.submit(() -> {
+                    SocketChannel channel;
+                    try {
+                        channel = connect(source, server);
+                    } catch (IOException e) {
+                        counters.failedConnections.increment();
+                        return null;
+                    } finally {
+                        connected.countDown();
+                    }
+                    go.await();
+                    drive(channel, source, server, request, requestsPerConnection, pipelineDepth, counters);
+                    return null;
+                });
+            }
+
+            // Release every connection at once
+            connected.await();
+            start = System.nanoTime();
+            go.countDown();
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        return new Result(connections, (int) counters.failedConnections.sum(), counters.reconnects.sum(),
+                counters.requests.sum(), counters.failedRequests.sum(), elapsed,
+                counters.latencies.valueAtPercentile(50) / 1000, counters.latencies.valueAtPercentile(99) / 1000);
+    }
+
+    private static final class Counters {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder failedConnections = new LongAdder();
+        final LongAdder reconnects = new LongAdder();
+        final LongAdder requests = new LongAdder();
+        final LongAdder failedRequests = new LongAdder();
+    }
+
+    /**
+     * Returns the loopback source addresses this machine can bind, always including
+     * {@code 127.0.0.1}.
+     */
+    private static List<InetSocketAddress> sourceAddresses() {
+        var sources = new ArrayList<InetSocketAddress>();
+        sources.add(new InetSocketAddress("127.0.0.1", 0));
+        for (int i = 2; i <= SOURCE_ADDRESSES; i++) {
+            var source = new InetSocketAddress("127.0.0." + i, 0);
+            try (var probe = SocketChannel.open()) {
+                probe.bind(source);
+                sources.add(source);
+            } catch (IOException e) {
+                // Not a local address here; later ones will not be either
+                break;
+            }
+        }
+        return sources;
+    }
+
+    private static SocketChannel connect(InetSocketAddress source, InetSocketAddress server) throws IOException {
+        var channel = SocketChannel.open();
+        try {
+            channel.bind(source);
+            channel.connect(server);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sends every request of one connection. A server may close an idle keep-alive connection
+     * (the JDK server keeps at most a few hundred); like a real client, the requests still
+     * unanswered are then resent on a new connection.
+     */
+    private static void drive(SocketChannel channel, InetSocketAddress source, InetSocketAddress server,
+                              byte[] request, int requestsPerConnection, int pipelineDepth, Counters counters) {
+        var in = ByteBuffer.allocate(NioHttpServer.BUFFER_SIZE);
+        int answered = 0;
+        int answeredBeforeReconnect = -1;
+        try {
+            while (answered < requestsPerConnection) {
+                int batch = Math.min(pipelineDepth, requestsPerConnection - answered);
+                var out = ByteBuffer.allocate(request.length * batch);
+                for (int r = 0; r < batch; r++) {
+                    out.put(request);
+                }
+                out.flip();
+                long sentAt = System.nanoTime();
+                try {
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    for (int r = 0; r < batch; r++) {
+                        int status = readResponse(channel, in);
+                        counters.requests.increment();
+                        answered++;
+                        if (status == 200) {
+                            counters.latencies.record(System.nanoTime() - sentAt);
+                        } else {
+                            // Shed or failed: fast errors would only flatter the percentiles
+                            counters.failedRequests.increment();
+                        }
+                    }
+                } catch (IOException e) {
+                    if (answered == answeredBeforeReconnect) {
+                        // A fresh connection failed too; give up on the rest
+                        throw e;
+                    }
+                    // Closed by the server: reconnect and resend what is left
+                    answeredBeforeReconnect = answered;
+                    channel.close();
+                    in.clear();
+                    channel = connect(source, server);
+                    counters.reconnects.increment();
+                }
+            }
+        } catch (IOException e) {
+            counters.failedRequests.add(requestsPerConnection - answered);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Reads one response and returns its status code. Bytes of a following pipelined response
+     * stay in {@code in}.
+     */
+    private static int readResponse(SocketChannel channel, ByteBuffer in) throws IOException {
+        while (true) {
+            in.flip();
+            int headerEnd = indexOfHeaderEnd(in);
+            if (headerEnd >= 0) {
+                var head = new byte[headerEnd - in.position()];
+                in.get(in.position(), head);
+                var text = new String(head, StandardCharsets.ISO_8859_1);
+                int status = Integer.parseInt(text.substring(9, 12));
+                int contentLength = 0;
+                for (String line : text.split("\r\n")) {
+                    if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                int end = headerEnd + 4 + contentLength;
+                if (end <= in.limit()) {
+                    in.position(end);
+                    in.compact();
+                    return status;
+                }
+            }
+            in.compact();
+            if (!in.hasRemaining() || channel.read(in) < 0) {
+                throw new EOFException("Connection closed mid-response");
+            }
+        }
+    }
+
+    private static int indexOfHeaderEnd(ByteBuffer in) {
+        for (int i = in.position(); i + 3 < in.limit(); i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.javaconcurrency.structured;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free pool of equally sized direct buffers.
+ * <p>
+ * Direct buffers are expensive to allocate and are only freed by the garbage collector, so
+ * servers that write through them should reuse a few instead of holding one per connection.
+ * Buffers live in a fixed array of slots; acquiring and releasing probe a handful of slots
+ * starting at a per-thread offset with a single atomic swap each, and allocate nothing once
+ * the pool is warm. When every probed slot is empty a new buffer is allocated; when every
+ * probed slot is full the released buffer is dropped.
+ */
+public class DirectBufferPool {
+
+    private static final int PROBES = 8;
+
+    private final int bufferSize;
+    private final AtomicReferenceArray<ByteBuffer> slots;
+    private final LongAdder allocations = new LongAdder();
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.slots = new AtomicReferenceArray<>(maxPooled);
+    }
+
+    /**
+     * Returns a cleared buffer of {@code bufferSize} bytes.
+     */
+    public ByteBuffer acquire() {
+        int start = startSlot();
+        int probes = Math.min(PROBES, slots.length());
+        for (int i = 0; i < probes; i++) {
+            int slot = (start + i) % slots.length();
+            if (slots.get(slot) != null) {
+                ByteBuffer buffer = slots.getAndSet(slot, null);
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+        }
+        allocations.increment();
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use it afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        int start = startSlot();
+        int probes = Math.min(PROBES, slots.length());
+        for (int i = 0; i < probes; i++) {
+            int slot = (start + i) % slots.length();
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns how many buffers had to be allocated because the pool had none to hand out.
+     */
+    public long allocations() {
+        return allocations.sum();
+    }
+
+    private int startSlot() {
+        // Spread threads over the slots so they rarely contend for the same one
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 33) % slots.length();
+    }
+}
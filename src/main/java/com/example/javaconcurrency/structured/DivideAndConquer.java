@@ -0,0 +1,185 @@
+package com.example.javaconcurrency.structured;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.function.BinaryOperator;
+
+/**
+ * This example demonstrates recursive fan-out with structured concurrency: a product-id
+ * range is split in halves, each half forked into a nested scope, and the results
+ * combined on the way back up. Ranges at or below a granularity threshold run inline,
+ * so the number of virtual threads is about {@code 2 * size / threshold}.
+ * <p>
+ * The main method runs the same split against {@code ForkJoinPool.invoke} with a
+ * {@code RecursiveTask}, once with CPU-bound leaves and once with leaves that block on
+ * I/O, to show where each approach wins.
+ */
+public class DivideAndConquer {
+
+    /**
+     * Work done inline for one sub-range {@code [from, to)}.
+     */
+    @FunctionalInterface
+    public interface RangeTask<R> {
+        R compute(int from, int to) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Recursive Divide-and-Conquer");
+        System.out.println("============================");
+        System.out.println("ForkJoinPool parallelism: " + ForkJoinPool.commonPool().getParallelism());
+
+        int products = 1_000_000;
+
+        // CPU-bound: score every product in the catalogue
+        System.out.println("\nCPU-bound scoring of " + products + " products:");
+        for (int threshold : new int[] { 1_000, 10_000, 100_000 }) {
+            compare(products, threshold, DivideAndConquer::scoreProducts);
+        }
+
+        // I/O-bound: one simulated catalogue lookup per leaf batch
+        System.out.println("\nI/O-bound lookups of " + products + " products:");
+        for (int threshold : new int[] { 10_000, 50_000 }) {
+            compare(products, threshold, DivideAndConquer::lookupProducts);
+        }
+
+        System.out.println("\nKey takeaways:");
+        System.out.println("1. Below the threshold work runs inline, bounding the number of threads");
+        System.out.println("2. For CPU-bound leaves ForkJoin's work stealing has less overhead per split");
+        System.out.println("3. For blocking leaves virtual-thread scopes keep every leaf in flight");
+        System.out.println("4. A failing leaf cancels its siblings through every enclosing scope");
+    }
+
+    /**
+     * Splits {@code [from, to)} recursively until ranges are at most {@code threshold} wide,
+     * computes the leaves with {@code leaf} and merges the results with {@code combine}.
+     * Both halves are forked rather than computing one in the current thread: shutdown
+     * only interrupts forked subtasks, so inline work would not be cancelled when a
+     * sibling fails.
+     *
+     * @throws IllegalArgumentException if {@code threshold < 1} or {@code from > to}, which
+     *         would split forever
+     */
+    public static <R> R compute(int from, int to, int threshold,
+                                RangeTask<R> leaf, BinaryOperator<R> combine)
+            throws InterruptedException, ExecutionException {
+        checkRange(from, to, threshold);
+        if (width(from, to) <= threshold) {
+            try {
+                return leaf.compute(from, to);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+
+        int mid = from + (int) (width(from, to) / 2);
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+
+            // Fork both halves into nested scopes
+            var left = scope.fork(() -> compute(from, mid, threshold, leaf, combine));
+            var right = scope.fork(() -> compute(mid, to, threshold, leaf, combine));
+
+            scope.join().throwIfFailed(DivideAndConquer::unwrap);
+            return combine.apply(left.get(), right.get());
+        }
+    }
+
+    private static void checkRange(int from, int to, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("Range [" + from + ", " + to + ") ends before it starts");
+        }
+    }
+
+    /**
+     * Width of {@code [from, to)} as a long, which cannot overflow even for negative bounds.
+     */
+    private static long width(int from, int to) {
+        return (long) to - from;
+    }
+
+    private static void compare(int products, int threshold, RangeTask<Long> leaf) throws Exception {
+        long start = System.nanoTime();
+        long structured = compute(0, products, threshold, leaf, Long::sum);
+        long structuredMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        long forkJoin = ForkJoinPool.commonPool().invoke(new RangeRecursiveTask(0, products, threshold, leaf));
+        long forkJoinMs = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("threshold %,7d: StructuredTaskScope %5d ms, ForkJoinPool %5d ms%s%n",
+                threshold, structuredMs, forkJoinMs, structured == forkJoin ? "" : " (results differ!)");
+    }
+
+    /**
+     * The same split as {@link #compute} expressed as a RecursiveTask.
+     */
+    private static class RangeRecursiveTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        // Tasks are never serialized; ForkJoinTask is Serializable only by inheritance
+        private final transient RangeTask<Long> leaf;
+
+        RangeRecursiveTask(int from, int to, int threshold, RangeTask<Long> leaf) {
+            checkRange(from, to, threshold);
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected Long compute() {
+            if (width(from, to) <= threshold) {
+                try {
+                    return leaf.compute(from, to);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            int mid = from + (int) (width(from, to) / 2);
+            var left = new RangeRecursiveTask(from, mid, threshold, leaf);
+            left.fork();
+            long right = new RangeRecursiveTask(mid, to, threshold, leaf).compute();
+            return left.join() + right;
+        }
+    }
+
+    private static ExecutionException unwrap(Throwable t) {
+        // Nested scopes wrap a leaf failure once per level; report the original cause
+        while (t instanceof ExecutionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return new ExecutionException(t);
+    }
+
+    // Simulated workloads
+
+    private static long scoreProducts(int from, int to) {
+        long score = 0;
+        for (int id = from; id < to; id++) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            for (int round = 0; round < 50; round++) {
+                h ^= h >>> 31;
+                h *= 0xBF58476D1CE4E5B9L;
+            }
+            score += h & 0xFF;
+        }
+        return score;
+    }
+
+    private static long lookupProducts(int from, int to) throws InterruptedException {
+        // One batched catalogue request per leaf
+        Thread.sleep(20);
+        return to - from;
+    }
+}
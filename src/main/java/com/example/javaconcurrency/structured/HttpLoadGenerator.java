@@ -0,0 +1,237 @@
+package com.example.javaconcurrency.structured;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives an HTTP endpoint with {@link HttpClient} from virtual threads and reports throughput
+ * and latency percentiles, both as measured and corrected for coordinated omission.
+ * <p>
+ * A closed loop runs {@code connections} workers that each send their next request when the
+ * previous response arrived, paced to {@code rate} requests per second in total. When the
+ * server stalls, a closed loop simply stops sending, so the stall shows up as one slow
+ * sample instead of the many requests that real users would have sent meanwhile. The
+ * corrected histogram adds those missing samples back with
+ * {@link LatencyHistogram#recordCorrected}.
+ * <p>
+ * An open loop sends requests on a fixed schedule of {@code rate} per second, whatever the
+ * server does, with at most {@code connections} in flight. Latency is measured from the
+ * moment a request was scheduled, so time spent waiting for a free connection counts; the
+ * measured histogram starts the clock at the actual send instead.
+ * <p>
+ * Usage: {@code HttpLoadGenerator [url [closed|open [connections [rate [seconds]]]]]}. With a
+ * url, for example {@code http://localhost:8080/api/basic/virtual} of the Spring application,
+ * that endpoint is driven alone. Without arguments, {@link SimpleVirtualThreadServer} is
+ * started once with virtual-thread handlers and once with a pool of 200 platform threads,
+ * the default size of Tomcat's pool, and both are driven with {@code /sleep?ms=500} at 1000 requests per second in both
+ * modes.
+ */
+public class HttpLoadGenerator {
+
+    public enum Mode { CLOSED, OPEN }
+
+    public record Config(URI uri, Mode mode, int connections, int rate, Duration duration) {
+
+        public Config {
+            if (connections < 1) {
+                throw new IllegalArgumentException("At least one connection is required, got " + connections);
+            }
+            // Above one request per nanosecond the send interval would round down to zero
+            if (rate < 1 || rate > 1_000_000_000) {
+                throw new IllegalArgumentException("Rate must be between 1 and 1,000,000,000 per second, got " + rate);
+            }
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive, got " + duration);
+            }
+        }
+
+        long intervalNanos() {
+            return 1_000_000_000L / rate;
+        }
+    }
+
+    /**
+     * What one run measured. {@code requests} counts every attempt, {@code errors} the failed
+     * ones and non-200 responses such as a 503 from admission control; only the remaining
+     * {@code successes} count towards {@link #successfulRequestsPerSecond()}.
+     */
+    public record Result(Config config, long requests, long successes, long errors, Duration elapsed,
+                         LatencyHistogram measured, LatencyHistogram corrected) {
+
+        public double requestsPerSecond() {
+            return perSecond(requests);
+        }
+
+        public double successfulRequestsPerSecond() {
+            return perSecond(successes);
+        }
+
+        private double perSecond(long count) {
+            return count * 1_000_000_000.0 / Math.max(1, elapsed.toNanos());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d conns @ %,d/s: %,d requests (%d errors), %,.0f req/s, %,.0f ok/s | "
+                            + "measured p50 %s p99 %s p99.9 %s | corrected p50 %s p99 %s p99.9 %s",
+                    config.mode(), config.connections(), config.rate(), requests, errors,
+                    requestsPerSecond(), successfulRequestsPerSecond(),
+                    millis(measured, 50), millis(measured, 99), millis(measured, 99.9),
+                    millis(corrected, 50), millis(corrected, 99), millis(corrected, 99.9));
+        }
+
+        private static String millis(LatencyHistogram histogram, double percentile) {
+            return String.format("%.1fms", histogram.valueAtPercentile(percentile) / 1_000_000.0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            var mode = args.length > 1 ? Mode.valueOf(args[1].toUpperCase()) : Mode.CLOSED;
+            int connections = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+            int rate = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+            var duration = Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 10);
+            System.out.println(run(new Config(URI.create(args[0]), mode, connections, rate, duration)));
+            return;
+        }
+
+        // The handlers log every sleep unless told otherwise
+        System.setProperty("server.logRequests", "false");
+
+        compare("Virtual handlers: ", Executors.newVirtualThreadPerTaskExecutor());
+        compare("Platform handlers:", Executors.newFixedThreadPool(200));
+    }
+
+    private static void compare(String label, ExecutorService handlers) throws Exception {
+        var server = SimpleVirtualThreadServer.start(0, null, handlers);
+        try {
+            var uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/sleep?ms=500");
+            // Warm up the JIT and the connection pools first
+            run(new Config(uri, Mode.CLOSED, 1000, 1000, Duration.ofSeconds(2)));
+            // 1000 connections can sustain 2,000 req/s at 500 ms each, 200 threads only 400
+            for (var mode : Mode.values()) {
+                var result = run(new Config(uri, mode, 1000, 1000, Duration.ofSeconds(5)));
+                System.out.println(label + " " + result);
+            }
+        } finally {
+            server.stop(0);
+            handlers.close();
+        }
+    }
+
+    public static Result run(Config config) throws InterruptedException {
+        var counters = new Counters();
+        var request = HttpRequest.newBuilder(config.uri()).GET().build();
+
+        long start;
+        long end;
+        // The client does not own its executor, so close it after the client
+        try (var clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             var client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clientExecutor)
+                     .build()) {
+            start = System.nanoTime();
+            // Closing the senders waits for every request still in flight, before the client closes
+            try (var senders = Executors.newVirtualThreadPerTaskExecutor()) {
+                switch (config.mode()) {
+                    case CLOSED -> closedLoop(config, client, request, senders, start, counters);
+                    case OPEN -> openLoop(config, client, request, senders, start, counters);
+                }
+            }
+            end = System.nanoTime();
+        }
+        var elapsed = Duration.ofNanos(end - start);
+
+        return new Result(config, counters.requests.sum(), counters.successes.sum(), counters.errors.sum(), elapsed,
+                counters.measured, counters.corrected);
+    }
+
+    private static final class Counters {
+        final LatencyHistogram measured = new LatencyHistogram();
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final LongAdder requests = new LongAdder();
+        final LongAdder successes = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private static void closedLoop(Config config, HttpClient client, HttpRequest request,
+                                   ExecutorService executor, long start, Counters counters) {
+        long end = start + config.duration().toNanos();
+        // Each worker sends its share of the total rate
+        long workerInterval = config.intervalNanos() * config.connections();
+
+        for (int i = 0; i < config.connections(); i++) {
+            // Stagger the workers over one interval so they do not all fire together
+            long firstSend = start + workerInterval * i / config.connections();
+            executor.submit(() -> {
+                long next = firstSend;
+                while (next < end) {
+                    parkUntil(next);
+                    long sentAt = System.nanoTime();
+                    send(client, request, counters);
+                    long latency = System.nanoTime() - sentAt;
+                    counters.measured.record(latency);
+                    counters.corrected.recordCorrected(latency, workerInterval);
+                    // Never catch up by bursting; a late worker carries on from now
+                    next = Math.max(next + workerInterval, System.nanoTime());
+                }
+                return null;
+            });
+        }
+    }
+
+    private static void openLoop(Config config, HttpClient client, HttpRequest request,
+                                 ExecutorService executor, long start, Counters counters) {
+        var connections = new Semaphore(config.connections());
+        long total = config.duration().toNanos() / config.intervalNanos();
+
+        for (long i = 0; i < total; i++) {
+            long scheduledAt = start + i * config.intervalNanos();
+            parkUntil(scheduledAt);
+            executor.submit(() -> {
+                connections.acquire();
+                try {
+                    long sentAt = System.nanoTime();
+                    send(client, request, counters);
+                    long now = System.nanoTime();
+                    counters.measured.record(now - sentAt);
+                    counters.corrected.record(now - scheduledAt);
+                } finally {
+                    connections.release();
+                }
+                return null;
+            });
+        }
+    }
+
+    private static void send(HttpClient client, HttpRequest request, Counters counters) throws InterruptedException {
+        try {
+            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                counters.successes.increment();
+            } else {
+                counters.errors.increment();
+            }
+        } catch (IOException e) {
+            counters.errors.increment();
+        }
+        counters.requests.increment();
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.javaconcurrency.structured;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, optionally rolling over a time window.
+ * <p>
+ * Values are recorded in nanoseconds into buckets that split every power of two into 16 steps,
+ * so a reported percentile is at most about 6% above the true value, from 1 ns up to about 36
+ * minutes. Percentiles report the upper edge of their bucket, which errs on the safe side
+ * when they are used as timeouts.
+ * <p>
+ * A rolling histogram keeps {@code slices} sub-histograms that each cover
+ * {@code window / slices} and reuses the oldest one as time moves on, so only roughly the last
+ * {@code window} of samples is visible. A histogram created with the no-argument constructor
+ * never forgets. Recording is a couple of atomic increments and safe from any number of
+ * threads; a sample racing with a slice rollover may be dropped.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final long originNanos = System.nanoTime();
+    private final long sliceNanos;
+    private final AtomicLongArray[] slices;
+    private final AtomicLong[] sliceEpochs;
+
+    /**
+     * Creates a histogram that keeps every sample.
+     */
+    public LatencyHistogram() {
+        this.sliceNanos = Long.MAX_VALUE;
+        this.slices = new AtomicLongArray[] { new AtomicLongArray(BUCKETS) };
+        this.sliceEpochs = new AtomicLong[] { new AtomicLong() };
+    }
+
+    /**
+     * Creates a histogram that only reports samples from roughly the last {@code window}.
+     */
+    public LatencyHistogram(Duration window, int slices) {
+        if (slices < 1) {
+            throw new IllegalArgumentException("slices must be positive: " + slices);
+        }
+        this.sliceNanos = Math.max(1, window.toNanos() / slices);
+        this.slices = new AtomicLongArray[slices];
+        this.sliceEpochs = new AtomicLong[slices];
+        for (int i = 0; i < slices; i++) {
+            this.slices[i] = new AtomicLongArray(BUCKETS);
+            this.sliceEpochs[i] = new AtomicLong();
+        }
+    }
+
+    public void record(Duration latency) {
+        record(latency.toNanos());
+    }
+
+    public void record(long nanos) {
+        currentSlice().incrementAndGet(bucketIndex(nanos));
+    }
+
+    /**
+     * Records a sample from a load generator that meant to send a request every
+     * {@code expectedIntervalNanos}, correcting for coordinated omission: a response that
+     * took several intervals held back the requests that should have been sent meanwhile, so
+     * their would-be latencies ({@code nanos - interval}, {@code nanos - 2 * interval}, ...)
+     * are recorded as well.
+     */
+    public void recordCorrected(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0) {
+            return;
+        }
+        for (long missed = nanos - expectedIntervalNanos; missed >= expectedIntervalNanos; missed -= expectedIntervalNanos) {
+            record(missed);
+        }
+    }
+
+    /**
+     * Returns the number of samples currently in the window.
+     */
+    public long count() {
+        long count = 0;
+        for (long bucket : snapshot()) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the latency at the given percentile (0-100) in nanoseconds, or 0 when empty.
+     */
+    public long valueAtPercentile(double percentile) {
+        long[] buckets = snapshot();
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    public Duration percentile(double percentile) {
+        return Duration.ofNanos(valueAtPercentile(percentile));
+    }
+
+    /**
+     * Clears every sample.
+     */
+    public void reset() {
+        for (AtomicLongArray slice : slices) {
+            for (int i = 0; i < BUCKETS; i++) {
+                slice.set(i, 0);
+            }
+        }
+    }
+
+    private AtomicLongArray currentSlice() {
+        if (sliceNanos == Long.MAX_VALUE) {
+            return slices[0];
+        }
+        long epoch = (System.nanoTime() - originNanos) / sliceNanos;
+        int index = (int) (epoch % slices.length);
+        AtomicLong sliceEpoch = sliceEpochs[index];
+        long seen = sliceEpoch.get();
+        if (seen < epoch && sliceEpoch.compareAndSet(seen, epoch)) {
+            // This slice last held samples from a whole window ago
+            AtomicLongArray slice = slices[index];
+            for (int i = 0; i < BUCKETS; i++) {
+                slice.set(i, 0);
+            }
+        }
+        return slices[index];
+    }
+
+    private long[] snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long oldestEpoch = sliceNanos == Long.MAX_VALUE ? 0
+                : (System.nanoTime() - originNanos) / sliceNanos - slices.length + 1;
+        for (int s = 0; s < slices.length; s++) {
+            if (sliceEpochs[s].get() < oldestEpoch) {
+                continue;
+            }
+            AtomicLongArray slice = slices[s];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += slice.get(i);
+            }
+        }
+        return buckets;
+    }
+
+    static int bucketIndex(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long step = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * step - 1;
+    }
+}
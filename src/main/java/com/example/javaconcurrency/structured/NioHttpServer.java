@@ -0,0 +1,500 @@
+package com.example.javaconcurrency.structured;
+
+import com.example.javaconcurrency.structured.SimpleVirtualThreadServer.JsonResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An HTTP/1.1 server on a blocking {@link ServerSocketChannel}, serving the same
+ * {@code /hello} and {@code /sleep} handlers as {@link SimpleVirtualThreadServer}.
+ * <p>
+ * Every accepted connection gets its own virtual thread that reads and writes with plain
+ * blocking calls; the virtual thread parks instead of blocking a carrier while the socket
+ * is not ready. Connections are kept alive until the client sends {@code Connection: close}
+ * (or speaks HTTP/1.0 without keep-alive). Pipelined requests that arrive in one read are
+ * handled in order and their responses gathered into one direct-buffer write.
+ * <p>
+ * Handlers registered with {@link #route} return a {@link JsonResponse} that the server
+ * encodes. Handlers registered with {@link #routeDirect} write the response bytes themselves
+ * into the pooled output buffer, or stream a file with {@code FileChannel.transferTo}; see
+ * {@link PreEncodedResponses}.
+ * <p>
+ * Only what the demo handlers need is supported: no chunked request bodies, and a request
+ * with its body must fit in {@link #BUFFER_SIZE} bytes.
+ */
+public class NioHttpServer implements AutoCloseable {
+
+    static final int BUFFER_SIZE = 8 * 1024;
+    // Enough for a typical request line and headers; grown up to BUFFER_SIZE when needed
+    private static final int INITIAL_INPUT_SIZE = 1024;
+    private static final int BACKLOG = 4096;
+    private static final Duration ACCEPT_BACKOFF = Duration.ofMillis(100);
+    private static final byte[] CRLF_CRLF = { '\r', '\n', '\r', '\n' };
+
+    /**
+     * Handles one parsed request on the connection's virtual thread.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        JsonResponse handle(Request request) throws Exception;
+    }
+
+    /**
+     * Writes a complete response, headers included, to the connection's output.
+     */
+    @FunctionalInterface
+    public interface DirectHandler {
+        void handle(Request request, ResponseOutput output) throws Exception;
+    }
+
+    public record Request(String method, String path, String query, boolean keepAlive) {}
+
+    /**
+     * A request the server cannot accept, answered with {@code statusCode} before the
+     * connection is closed.
+     */
+    static final class BadRequestException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        final int statusCode;
+
+        BadRequestException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+    }
+
+    private record Route(String prefix, DirectHandler handler) {}
+
+    private final List<Route> routes = new ArrayList<>();
+    private final DirectBufferPool buffers = new DirectBufferPool(BUFFER_SIZE, 1024);
+    private final ServerSocketChannel serverChannel;
+    private volatile AdmissionController admission;
+    private Thread acceptor;
+
+    public static void main(String[] args) throws IOException {
+        // Create and configure the server
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        var server = new NioHttpServer(port);
+
+        // Register the same endpoints as SimpleVirtualThreadServer, written from pre-encoded
+        // fragments, plus static files sent with transferTo
+        server.routeDirect("/hello", PreEncodedResponses::hello);
+        server.routeDirect("/sleep", PreEncodedResponses::sleep);
+        var staticRoot = Path.of(System.getProperty("server.staticRoot", "src/main/resources"));
+        server.routeDirect("/static/", PreEncodedResponses.staticFiles("/static/", staticRoot));
+        server.admission(AdmissionController.defaults());
+
+        server.start();
+        System.out.println("NIO server started on port " + server.port());
+        System.out.println("Try: http://localhost:" + server.port() + "/hello");
+        System.out.println("     http://localhost:" + server.port() + "/sleep?ms=2000");
+        System.out.println("     http://localhost:" + server.port() + "/static/logback.xml");
+    }
+
+    public NioHttpServer(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+    }
+
+    /**
+     * Registers a handler for every path starting with {@code prefix}, like
+     * {@code HttpServer.createContext}. The longest matching prefix wins.
+     */
+    public NioHttpServer route(String prefix, Handler handler) {
+        return routeDirect(prefix, (request, output) -> output.write(handler.handle(request)));
+    }
+
+    /**
+     * Registers a handler that writes its own response bytes.
+     */
+    public NioHttpServer routeDirect(String prefix, DirectHandler handler) {
+        routes.add(new Route(prefix, handler));
+        routes.sort(Comparator.comparingInt((Route route) -> route.prefix().length()).reversed());
+        return this;
+    }
+
+    /**
+     * Limits concurrent requests per route prefix; requests over the limit get a 503 with
+     * {@code Retry-After} without running their handler. Null admits everything.
+     */
+    public NioHttpServer admission(AdmissionController admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    public void start() {
+        acceptor = Thread.ofPlatform().name("nio-acceptor").start(this::acceptLoop);
+    }
+
+    public int port() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        if (acceptor != null) {
+            try {
+                acceptor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                Thread.ofVirtual().start(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Typically out of file descriptors; retrying at once would only spin, so
+                // wait for connections to close before accepting again
+                System.err.println("Accept failed: " + e.getMessage());
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        // A heap buffer: the socket read copies through a cached temporary direct buffer of
+        // the carrier, so idle connections do not pin native memory
+        var in = ByteBuffer.allocate(INITIAL_INPUT_SIZE);
+        var output = new ResponseOutput(channel, buffers);
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            try {
+                while (output.keepAlive && channel.read(in) >= 0) {
+                    in.flip();
+
+                    // Handle every complete request in the buffer before writing
+                    Request request;
+                    while (output.keepAlive && (request = parse(in)) != null) {
+                        output.keepAlive = request.keepAlive();
+                        dispatch(request, output);
+                    }
+                    output.flush();
+
+                    in.compact();
+                    if (!in.hasRemaining() && in.capacity() < BUFFER_SIZE) {
+                        in = grow(in);
+                    } else if (!in.hasRemaining()) {
+                        output.keepAlive = false;
+                        output.write(error(431, "Request headers too large"));
+                        output.flush();
+                        return;
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                // Only parse throws, so the output holds complete responses to the requests
+                // pipelined before the malformed one; send those, then the error
+                output.flush();
+                output.keepAlive = false;
+                int status = e instanceof BadRequestException bad ? bad.statusCode : 400;
+                output.write(error(status, e.getMessage()));
+                output.flush();
+            }
+        } catch (IOException e) {
+            // Client went away mid-request; nothing to answer
+        } finally {
+            output.discard();
+        }
+    }
+
+    /**
+     * Copies the unread bytes of a compacted buffer into one twice its size.
+     */
+    private static ByteBuffer grow(ByteBuffer in) {
+        var larger = ByteBuffer.allocate(Math.min(in.capacity() * 2, BUFFER_SIZE));
+        return larger.put(in.flip());
+    }
+
+    private void dispatch(Request request, ResponseOutput output) throws IOException {
+        for (Route route : routes) {
+            if (request.path().startsWith(route.prefix())) {
+                var admission = this.admission;
+                var permit = admission == null ? null : admission.tryAcquire(route.prefix());
+                if (admission != null && permit == null) {
+                    output.write(SimpleVirtualThreadServer.overloaded(route.prefix()),
+                            "Retry-After: " + admission.policy(route.prefix()).retryAfterSeconds() + "\r\n");
+                    return;
+                }
+                try {
+                    route.handler().handle(request, output);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    output.write(error(500, e.getMessage()));
+                } finally {
+                    if (permit != null) {
+                        permit.release();
+                    }
+                }
+                return;
+            }
+        }
+        output.write(error(404, "No handler for " + request.path()));
+    }
+
+    /**
+     * Parses one request from the buffer and advances past it, or returns null and leaves the
+     * buffer untouched if the request is not complete yet.
+     *
+     * @throws IllegalArgumentException if the request is malformed, or a
+     *         {@link BadRequestException} with 413 if its body can never fit in the buffer
+     */
+    static Request parse(ByteBuffer in) {
+        int start = in.position();
+        int headerEnd = indexOf(in, start, CRLF_CRLF);
+        if (headerEnd < 0) {
+            return null;
+        }
+        var bytes = new byte[headerEnd - start];
+        in.get(start, bytes);
+        var lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n");
+
+        // Request line: METHOD SP request-target SP HTTP-version
+        var requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) {
+            throw new IllegalArgumentException("Malformed request line: " + lines[0]);
+        }
+        boolean http11 = requestLine[2].equals("HTTP/1.1");
+        boolean keepAlive = http11;
+        int contentLength = 0;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            var name = lines[i].substring(0, colon).trim();
+            var value = lines[i].substring(colon + 1).trim();
+            if (name.equalsIgnoreCase("Connection")) {
+                keepAlive = http11 ? !value.equalsIgnoreCase("close") : value.equalsIgnoreCase("keep-alive");
+            } else if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(value);
+                if (contentLength < 0) {
+                    // Would move the position backwards and parse the same request forever
+                    throw new BadRequestException(400, "Negative Content-Length: " + value);
+                }
+            }
+        }
+        if ((long) headerEnd - start + CRLF_CRLF.length + contentLength > BUFFER_SIZE) {
+            throw new BadRequestException(413, "Request body of " + contentLength + " bytes is too large");
+        }
+
+        // Skip any body; the demo handlers only look at the request target
+        int end = headerEnd + CRLF_CRLF.length + contentLength;
+        if (end > in.limit()) {
+            return null;
+        }
+        in.position(end);
+
+        var target = requestLine[1];
+        int question = target.indexOf('?');
+        var path = question < 0 ? target : target.substring(0, question);
+        var query = question < 0 ? null : target.substring(question + 1);
+        return new Request(requestLine[0], path, query, keepAlive);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, byte[] pattern) {
+        int last = buffer.limit() - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Where handlers write responses for one connection. Responses are gathered in a direct
+     * buffer borrowed from the server's pool and written with one call once every pipelined
+     * request in the current read has been handled; the buffer goes back to the pool after
+     * each flush, so idle connections hold no output buffer.
+     */
+    public static final class ResponseOutput {
+        private final SocketChannel channel;
+        private final DirectBufferPool buffers;
+        private ByteBuffer out;
+        boolean keepAlive = true;
+
+        ResponseOutput(SocketChannel channel, DirectBufferPool buffers) {
+            this.channel = channel;
+            this.buffers = buffers;
+        }
+
+        /**
+         * Whether the connection stays open after this response; if not, the response must
+         * carry {@code Connection: close}.
+         */
+        public boolean keepAlive() {
+            return keepAlive;
+        }
+
+        /**
+         * Returns the output buffer with at least {@code bytes} free, flushing earlier
+         * responses first if needed.
+         */
+        public ByteBuffer buffer(int bytes) throws IOException {
+            if (bytes > BUFFER_SIZE) {
+                throw new IllegalArgumentException(bytes + " bytes do not fit in the output buffer");
+            }
+            if (out == null) {
+                out = buffers.acquire();
+            } else if (out.remaining() < bytes) {
+                flush();
+                out = buffers.acquire();
+            }
+            return out;
+        }
+
+        /**
+         * Encodes a status line, headers and JSON body.
+         */
+        public void write(JsonResponse response) throws IOException {
+            write(response, "");
+        }
+
+        /**
+         * Encodes a JSON response with extra header lines, each ending in CRLF.
+         */
+        public void write(JsonResponse response, String extraHeaders) throws IOException {
+            var body = response.body().getBytes(StandardCharsets.UTF_8);
+            var head = ("HTTP/1.1 " + response.statusCode() + " " + reason(response.statusCode()) + "\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + extraHeaders
+                    + (keepAlive ? "" : "Connection: close\r\n")
+                    + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+            if (head.length + body.length <= BUFFER_SIZE) {
+                buffer(head.length + body.length).put(head).put(body);
+                return;
+            }
+            // Larger than the buffer: write it straight through
+            buffer(head.length).put(head);
+            flush();
+            writeFully(ByteBuffer.wrap(body));
+        }
+
+        /**
+         * Sends {@code count} bytes of a file after everything buffered so far. The kernel
+         * copies straight from the page cache to the socket where it can.
+         */
+        public void transferFrom(FileChannel file, long position, long count) throws IOException {
+            flush();
+            long end = position + count;
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, channel);
+                if (sent <= 0 && file.size() <= position) {
+                    throw new IOException("File truncated while sending");
+                }
+                position += sent;
+            }
+        }
+
+        void flush() throws IOException {
+            if (out == null) {
+                return;
+            }
+            out.flip();
+            try {
+                writeFully(out);
+            } finally {
+                discard();
+            }
+        }
+
+        void discard() {
+            if (out != null) {
+                buffers.release(out);
+                out = null;
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    static JsonResponse error(int statusCode, String message) {
+        String response = """
+            {
+              "error": "%s",
+              "message": "%s"
+            }
+            """.formatted(reason(statusCode), escape(message));
+        return new JsonResponse(statusCode, response);
+    }
+
+    /**
+     * Escapes a message for a JSON string; it may quote the client's request.
+     */
+    static String escape(String message) {
+        if (message == null) {
+            return "";
+        }
+        var escaped = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+
+    static String reason(int statusCode) {
+        return switch (statusCode) {
+            case 200 -> "OK";
+            case 400 -> "Bad Request";
+            case 404 -> "Not Found";
+            case 413 -> "Content Too Large";
+            case 431 -> "Request Header Fields Too Large";
+            case 503 -> "Service Unavailable";
+            default -> statusCode >= 500 ? "Internal Server Error" : "Error";
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.javaconcurrency.structured;
+
+import com.example.javaconcurrency.structured.NioHttpServer.Request;
+import com.example.javaconcurrency.structured.NioHttpServer.ResponseOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code /hello} and {@code /sleep} responses of {@link SimpleVirtualThreadServer}, written
+ * byte for byte the same but without building a String per request.
+ * <p>
+ * The constant parts of each JSON body and of the header block are encoded once. Per request
+ * only the variable values are written, as ASCII digits and characters, straight into the
+ * connection's pooled direct buffer. The {@code Content-Length} value is not known until the
+ * body is written, so a fixed-width field is reserved for it and back-filled right-aligned;
+ * the leading spaces are optional whitespace that HTTP allows before a header value.
+ * <p>
+ * {@link #staticFiles} serves files with {@code FileChannel.transferTo}, so file contents never
+ * pass through the Java heap.
+ */
+public final class PreEncodedResponses {
+
+    private static final int LENGTH_DIGITS = 7;
+
+    private static final byte[] HEADER_200 = ascii(
+            "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length:");
+    private static final byte[] HEADER_LENGTH_FIELD = ascii(" ".repeat(LENGTH_DIGITS));
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+
+    private static final byte[] HELLO_START = utf8("{\n  \"message\": \"Hello from Virtual Thread!\",\n  \"thread\": \"");
+    private static final byte[] HELLO_THREAD_ID = utf8("\",\n  \"threadId\": ");
+    private static final byte[] HELLO_IS_VIRTUAL = utf8(",\n  \"isVirtual\": ");
+    private static final byte[] OBJECT_END = utf8("\n}\n");
+
+    private static final byte[] SLEEP_START = utf8("{\n  \"message\": \"Slept for ");
+    private static final byte[] SLEEP_REQUESTED = utf8(" milliseconds\",\n  \"requestedSleepMs\": ");
+    private static final byte[] SLEEP_ACTUAL = utf8(",\n  \"actualDurationMs\": ");
+    private static final byte[] SLEEP_THREAD = utf8(",\n  \"thread\": \"");
+    private static final byte[] SLEEP_IS_VIRTUAL = utf8("\",\n  \"isVirtual\": ");
+
+    private static final byte[] TRUE = utf8("true");
+    private static final byte[] FALSE = utf8("false");
+
+    // Room for every fixed fragment plus a thread name and numbers of any sensible length
+    private static final int MAX_RESPONSE = 1024;
+
+    private PreEncodedResponses() {
+    }
+
+    public static void hello(Request request, ResponseOutput output) throws IOException {
+        var thread = Thread.currentThread();
+        var out = output.buffer(MAX_RESPONSE);
+        int lengthField = beginOk(out, output.keepAlive());
+        int bodyStart = out.position();
+
+        out.put(HELLO_START);
+        putAscii(out, thread.getName());
+        out.put(HELLO_THREAD_ID);
+        putLong(out, thread.threadId());
+        out.put(HELLO_IS_VIRTUAL);
+        out.put(thread.isVirtual() ? TRUE : FALSE);
+        out.put(OBJECT_END);
+
+        fillContentLength(out, lengthField, out.position() - bodyStart);
+    }
+
+    public static void sleep(Request request, ResponseOutput output) throws IOException {
+        var query = request.query();
+        long sleepMs = 1000;
+        if (query != null && query.startsWith("ms=")) {
+            try {
+                sleepMs = Long.parseLong(query, 3, query.length(), 10);
+            } catch (NumberFormatException e) {
+                // Same error body as the String-based handler
+                output.write(SimpleVirtualThreadServer.sleep(query));
+                return;
+            }
+        }
+        sleepMs = Math.min(sleepMs, 10000);
+
+        if (SimpleVirtualThreadServer.LOG_REQUESTS) {
+            System.out.printf("Thread %s sleeping for %d ms%n", Thread.currentThread().getName(), sleepMs);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            output.write(NioHttpServer.error(500, "Sleep interrupted"));
+            return;
+        }
+        long actualMs = (System.nanoTime() - start) / 1_000_000;
+
+        var thread = Thread.currentThread();
+        var out = output.buffer(MAX_RESPONSE);
+        int lengthField = beginOk(out, output.keepAlive());
+        int bodyStart = out.position();
+
+        out.put(SLEEP_START);
+        putLong(out, sleepMs);
+        out.put(SLEEP_REQUESTED);
+        putLong(out, sleepMs);
+        out.put(SLEEP_ACTUAL);
+        putLong(out, actualMs);
+        out.put(SLEEP_THREAD);
+        putAscii(out, thread.getName());
+        out.put(SLEEP_IS_VIRTUAL);
+        out.put(thread.isVirtual() ? TRUE : FALSE);
+        out.put(OBJECT_END);
+
+        fillContentLength(out, lengthField, out.position() - bodyStart);
+    }
+
+    /**
+     * Returns a handler that serves files below {@code root}, with the part of the request
+     * path after {@code prefix} as the relative file name.
+     */
+    public static NioHttpServer.DirectHandler staticFiles(String prefix, Path root) {
+        var base = root.toAbsolutePath().normalize();
+        return (request, output) -> {
+            var file = base.resolve(request.path().substring(prefix.length())).normalize();
+            if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+                output.write(NioHttpServer.error(404, "No such file: " + request.path()));
+                return;
+            }
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                var head = ascii("HTTP/1.1 200 OK\r\nContent-Type: " + contentType(file) + "\r\n"
+                        + "Content-Length: " + size + "\r\n"
+                        + (output.keepAlive() ? "" : "Connection: close\r\n")
+                        + "\r\n");
+                output.buffer(head.length).put(head);
+                output.transferFrom(channel, 0, size);
+            }
+        };
+    }
+
+    /**
+     * Writes the 200 header block with a blank Content-Length field and returns where the
+     * field starts.
+     */
+    private static int beginOk(ByteBuffer out, boolean keepAlive) {
+        out.put(HEADER_200);
+        int lengthField = out.position();
+        out.put(HEADER_LENGTH_FIELD).put(CRLF);
+        if (!keepAlive) {
+            out.put(CONNECTION_CLOSE);
+        }
+        out.put(CRLF);
+        return lengthField;
+    }
+
+    private static void fillContentLength(ByteBuffer out, int lengthField, int length) {
+        // Right-aligned: digits from the end of the field, spaces stay in front
+        int position = lengthField + LENGTH_DIGITS;
+        do {
+            out.put(--position, (byte) ('0' + length % 10));
+            length /= 10;
+        } while (length > 0);
+    }
+
+    private static void putLong(ByteBuffer out, long value) {
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int start = out.position();
+        do {
+            out.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        // Digits were written least significant first
+        for (int i = start, j = out.position() - 1; i < j; i++, j--) {
+            byte digit = out.get(i);
+            out.put(i, out.get(j));
+            out.put(j, digit);
+        }
+    }
+
+    private static void putAscii(ByteBuffer out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Rare: fall back to a real encoder for the whole value
+                out.position(out.position() - i);
+                out.put(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            out.put((byte) c);
+        }
+    }
+
+    private static String contentType(Path file) {
+        var name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return switch (dot < 0 ? "" : name.substring(dot + 1)) {
+            case "html" -> "text/html; charset=utf-8";
+            case "css" -> "text/css";
+            case "js" -> "text/javascript";
+            case "json" -> "application/json";
+            case "txt" -> "text/plain; charset=utf-8";
+            case "png" -> "image/png";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.javaconcurrency.structured;
+
+import com.example.javaconcurrency.structured.ProductService.InventoryInfo;
+import com.example.javaconcurrency.structured.ProductService.ProductBasicInfo;
+import com.example.javaconcurrency.structured.ProductService.ProductDetails;
+import com.example.javaconcurrency.structured.ProductService.Review;
+import com.example.javaconcurrency.structured.ProductService.SimilarProduct;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * This example puts a cache with request collapsing in front of
+ * {@link ProductService#getProductDetails}.
+ * <p>
+ * Each section of the page is cached separately with its own TTL, since stock levels go
+ * stale in seconds while names and recommendations last for minutes. A lookup only forks
+ * scope subtasks for the sections that are missing, and concurrent lookups for the same
+ * product share the leader's scope instead of forking their own.
+ */
+public class ProductDetailsCache {
+
+    private static final String BASIC_INFO = "basicInfo";
+    private static final String INVENTORY = "inventory";
+    private static final String REVIEWS = "reviews";
+    private static final String SIMILAR_PRODUCTS = "similarProducts";
+    private static final int SECTION_COUNT = 4;
+
+    private final ProductService service;
+    private final CacheMetrics metrics;
+    private final SectionCache<ProductBasicInfo> basicInfoCache;
+    private final SectionCache<InventoryInfo> inventoryCache;
+    private final SectionCache<List<Review>> reviewsCache;
+    private final SectionCache<List<SimilarProduct>> similarProductsCache;
+    private final ConcurrentHashMap<String, CompletableFuture<ProductDetails>> inFlight = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        var metrics = new CacheMetrics.Counters();
+        var cache = new ProductDetailsCache(new ProductService(), metrics, 10_000);
+        var productId = "PROD-12345";
+        
+        // 100 simultaneous lookups of the same product share one scope
+        System.out.println("100 concurrent lookups of " + productId + ":");
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                callers.submit(() -> cache.getProductDetails(productId));
+            }
+        }
+        System.out.println(metrics);
+        
+        // Seconds later every section is still fresh
+        System.out.println("\nRepeated lookup:");
+        var start = System.nanoTime();
+        var details = cache.getProductDetails(productId);
+        System.out.println(details.name() + " served in " + (System.nanoTime() - start) / 1_000 + " us");
+        System.out.println(metrics);
+        
+        // Once inventory expires only that section is refetched
+        Thread.sleep(Duration.ofSeconds(3));
+        System.out.println("\nLookup after the inventory TTL:");
+        start = System.nanoTime();
+        cache.getProductDetails(productId);
+        System.out.println("Served in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        System.out.println(metrics);
+    }
+
+    public ProductDetailsCache(ProductService service, CacheMetrics metrics, int maxEntries) {
+        this(service, metrics, maxEntries,
+                Duration.ofMinutes(10), Duration.ofSeconds(2), Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    public ProductDetailsCache(ProductService service, CacheMetrics metrics, int maxEntries,
+                               Duration basicInfoTtl, Duration inventoryTtl,
+                               Duration reviewsTtl, Duration similarProductsTtl) {
+        this.service = service;
+        this.metrics = metrics;
+        this.basicInfoCache = new SectionCache<>(basicInfoTtl, maxEntries);
+        this.inventoryCache = new SectionCache<>(inventoryTtl, maxEntries);
+        this.reviewsCache = new SectionCache<>(reviewsTtl, maxEntries);
+        this.similarProductsCache = new SectionCache<>(similarProductsTtl, maxEntries);
+    }
+
+    public ProductDetails getProductDetails(String productId) throws InterruptedException, ExecutionException {
+        var cached = lookup(productId);
+        if (cached.isComplete()) {
+            metrics.recordSavedBackendCalls(SECTION_COUNT);
+            return cached.assemble(productId);
+        }
+
+        var call = new CompletableFuture<ProductDetails>();
+        var existing = inFlight.putIfAbsent(productId, call);
+        if (existing != null) {
+            // Served entirely by the leader's scope, without a backend call of its own
+            metrics.recordCollapsed();
+            metrics.recordSavedBackendCalls(SECTION_COUNT);
+            return existing.get();
+        }
+
+        // Cached sections are not forked again
+        metrics.recordSavedBackendCalls(SECTION_COUNT - cached.missingCount());
+        try {
+            var details = load(productId, cached);
+            call.complete(details);
+            return details;
+        } catch (ExecutionException e) {
+            // Followers' get() wraps the cause again, so they see the same exception as the leader
+            call.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+            throw e;
+        } catch (Throwable t) {
+            call.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(productId, call);
+        }
+    }
+
+    private Sections lookup(String productId) {
+        return new Sections(
+            record(BASIC_INFO, basicInfoCache.get(productId)),
+            record(INVENTORY, inventoryCache.get(productId)),
+            record(REVIEWS, reviewsCache.get(productId)),
+            record(SIMILAR_PRODUCTS, similarProductsCache.get(productId))
+        );
+    }
+
+    private <T> T record(String section, T value) {
+        if (value != null) {
+            metrics.recordHit(section);
+        } else {
+            metrics.recordMiss(section);
+        }
+        return value;
+    }
+
+    /**
+     * Fetches only the missing sections in one scope. Optional sections that fail are
+     * served empty but not cached, so the next lookup retries them.
+     */
+    private ProductDetails load(String productId, Sections cached) throws InterruptedException, ExecutionException {
+        try (var scope = new TaskScopePatterns.RequiredOptionalTaskScope(ProductService.OPTIONAL_GRACE)) {
+            var basicInfoTask = cached.basicInfo() != null ? null
+                    : scope.forkRequired(() -> service.loadBasicInfo(productId));
+            var inventoryTask = cached.inventory() != null ? null
+                    : scope.forkRequired(() -> service.loadInventory(productId));
+            Supplier<List<Review>> reviewsTask = cached.reviews() != null ? null
+                    : scope.forkOptional(() -> service.loadReviews(productId), null);
+            Supplier<List<SimilarProduct>> similarProductsTask = cached.similarProducts() != null ? null
+                    : scope.forkOptional(() -> service.loadSimilarProducts(productId), null);
+
+            scope.join().throwIfFailed();
+
+            var basicInfo = basicInfoTask == null ? cached.basicInfo()
+                    : basicInfoCache.put(productId, basicInfoTask.get());
+            var inventory = inventoryTask == null ? cached.inventory()
+                    : inventoryCache.put(productId, inventoryTask.get());
+            var reviews = reviewsTask == null ? cached.reviews()
+                    : reviewsCache.put(productId, reviewsTask.get());
+            var similarProducts = similarProductsTask == null ? cached.similarProducts()
+                    : similarProductsCache.put(productId, similarProductsTask.get());
+
+            return new Sections(basicInfo, inventory, reviews, similarProducts).assemble(productId);
+        }
+    }
+
+    /**
+     * The four page sections; {@code null} marks a section that is not cached.
+     */
+    private record Sections(ProductBasicInfo basicInfo, InventoryInfo inventory,
+                            List<Review> reviews, List<SimilarProduct> similarProducts) {
+
+        boolean isComplete() {
+            return missingCount() == 0;
+        }
+
+        int missingCount() {
+            int missing = 0;
+            if (basicInfo == null) missing++;
+            if (inventory == null) missing++;
+            if (reviews == null) missing++;
+            if (similarProducts == null) missing++;
+            return missing;
+        }
+
+        ProductDetails assemble(String productId) {
+            return new ProductDetails(
+                productId,
+                basicInfo.name(),
+                basicInfo.price(),
+                inventory.stockLevel(),
+                basicInfo.rating(),
+                reviews != null ? reviews : List.of(),
+                similarProducts != null ? similarProducts : List.of()
+            );
+        }
+    }
+
+    /**
+     * Size-bounded TTL map for one section. When full, expired entries are purged first and
+     * otherwise an arbitrary entry is evicted, which keeps writes lock-free.
+     */
+    private static class SectionCache<V> {
+        private record Entry<V>(V value, long expiresAtNanos) {}
+
+        private final long ttlNanos;
+        private final int maxEntries;
+        private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+        SectionCache(Duration ttl, int maxEntries) {
+            this.ttlNanos = ttl.toNanos();
+            this.maxEntries = maxEntries;
+        }
+
+        V get(String key) {
+            var entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos() >= 0) {
+                entries.remove(key, entry);
+                return null;
+            }
+            return entry.value();
+        }
+
+        /**
+         * Caches a non-null value and returns it unchanged.
+         */
+        V put(String key, V value) {
+            if (value == null) {
+                return null;
+            }
+            if (entries.size() >= maxEntries) {
+                evict();
+            }
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+            return value;
+        }
+
+        private void evict() {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+            var keys = entries.keySet().iterator();
+            while (entries.size() >= maxEntries && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+}
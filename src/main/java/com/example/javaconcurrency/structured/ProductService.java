@@ -10,6 +10,21 @@ import java.time.Duration;
  * a simulated product service that aggregates data from multiple backend services.
  */
 public class ProductService {
+    
+    // One circuit breaker per backend: open after 3 consecutive failures, retry after 5 seconds
+    private final CircuitBreaker basicInfoBreaker = new CircuitBreaker("basic-info", 3, Duration.ofSeconds(5));
+    private final CircuitBreaker inventoryBreaker = new CircuitBreaker("inventory", 3, Duration.ofSeconds(5));
+    private final CircuitBreaker reviewsBreaker = new CircuitBreaker("reviews", 3, Duration.ofSeconds(5));
+    private final CircuitBreaker similarProductsBreaker = new CircuitBreaker("similar-products", 3, Duration.ofSeconds(5));
+    
+    // How long optional sections may run on after the required ones are done
+    static final Duration OPTIONAL_GRACE = Duration.ofMillis(300);
+    
+    // Per-branch latency, cancellations and join wait of getProductDetails
+    private final ScopeMetrics scopeMetrics = new ScopeMetrics("product-details");
+    
+    // Backends currently simulating an outage
+    private final java.util.Set<String> unavailableBackends = java.util.concurrent.ConcurrentHashMap.newKeySet();
 
     public static void main(String[] args) throws Exception {
         var service = new ProductService();
@@ -33,28 +48,74 @@ public class ProductService {
         } catch (Exception e) {
             System.out.println("Error retrieving product details: " + e.getMessage());
         }
+        
+        // Same page, but with recommendations and pricing depending on earlier results
+        try {
+            var productId = "PROD-12345";
+            System.out.println("\nFetching details with dependencies for product: " + productId);
+            
+            var start = System.nanoTime();
+            var productDetails = service.getProductDetailsWithDependencies(productId);
+            var elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Regional price: $" + productDetails.price());
+            System.out.println("Similar Products: " + productDetails.similarProducts().size());
+            System.out.println("Completed in " + elapsedMs + " ms (critical path: basic info -> similar products)");
+            
+        } catch (Exception e) {
+            System.out.println("Error retrieving product details: " + e.getMessage());
+        }
+        
+        // Reviews backend goes down: the first requests wait for it to fail, then its
+        // circuit opens and pages are served immediately without reviews
+        System.out.println("\nSimulating a reviews outage:");
+        service.unavailableBackends.add("reviews");
+        for (int i = 1; i <= 5; i++) {
+            try {
+                var start = System.nanoTime();
+                var productDetails = service.getProductDetails("PROD-12345");
+                var elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                System.out.println("Request " + i + ": " + productDetails.reviews().size() + " reviews in "
+                        + elapsedMs + " ms, reviews circuit " + service.reviewsBreaker.state());
+            } catch (Exception e) {
+                System.out.println("Request " + i + " failed: " + e.getMessage());
+            }
+        }
+        
+        // Where the time went across all getProductDetails calls above
+        System.out.println();
+        System.out.println(service.scopeMetrics.report());
+        System.out.println("Slowest branch at p99: " + service.scopeMetrics.slowestBranch(99));
     }
     
     /**
      * Fetches complete product information by aggregating data from multiple services.
      * Uses structured concurrency to parallelize service calls and handle errors.
+     * Every call goes through its backend's circuit breaker; reviews and similar products
+     * are optional and degrade to empty lists instead of failing or delaying the page.
      */
     public ProductDetails getProductDetails(String productId) 
             throws InterruptedException, ExecutionException {
         
-        // Use ShutdownOnFailure to cancel all tasks if any fail
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+        // Basic info and inventory are required: a failure cancels the page. Reviews and
+        // similar products are optional and fall back to empty lists if they fail or are
+        // still running shortly after the required calls are done.
+        try (var scope = new TaskScopePatterns.RequiredOptionalTaskScope(OPTIONAL_GRACE)) {
             
             // Fork parallel calls to different services
-            var basicInfoTask = scope.fork(() -> getBasicProductInfo(productId));
-            var inventoryTask = scope.fork(() -> getInventoryInfo(productId));
-            var reviewsTask = scope.fork(() -> getProductReviews(productId));
-            var recommendationsTask = scope.fork(() -> getSimilarProducts(productId));
+            var basicInfoTask = scope.forkRequired(
+                    scopeMetrics.instrument("basicInfo", () -> loadBasicInfo(productId)));
+            var inventoryTask = scope.forkRequired(
+                    scopeMetrics.instrument("inventory", () -> loadInventory(productId)));
+            var reviewsTask = scope.forkOptional(
+                    scopeMetrics.instrument("reviews", () -> loadReviews(productId)), java.util.List.<Review>of());
+            var recommendationsTask = scope.forkOptional(
+                    scopeMetrics.instrument("similarProducts", () -> loadSimilarProducts(productId)),
+                    java.util.List.<SimilarProduct>of());
             
-            // Wait for all tasks to complete or fail
-            scope.join().throwIfFailed();
+            // Wait for the required tasks, then briefly for the optional ones
+            scopeMetrics.join(scope).throwIfFailed();
             
-            // If we get here, all tasks completed successfully
+            // If we get here, all required tasks completed successfully
             var basicInfo = basicInfoTask.get();
             var inventory = inventoryTask.get();
             var reviews = reviewsTask.get();
@@ -73,30 +134,87 @@ public class ProductService {
         }
     }
     
+    /**
+     * Fetches product information where some calls need the results of others:
+     * similar products are looked up by the category from the basic info, and the
+     * price is resolved for the region the inventory is held in. Each call starts as
+     * soon as its inputs are ready, so latency follows the longest dependency chain.
+     */
+    public ProductDetails getProductDetailsWithDependencies(String productId)
+            throws InterruptedException, ExecutionException {
+        
+        var graph = new TaskGraph();
+        var basicInfo = graph.task("basicInfo", () -> getBasicProductInfo(productId));
+        var inventory = graph.task("inventory", () -> getInventoryInfo(productId));
+        var reviews = graph.task("reviews", () -> getProductReviews(productId));
+        var similarProducts = graph.task("similarProducts", basicInfo,
+                info -> getSimilarProductsInCategory(productId, info.category()));
+        var price = graph.task("regionalPrice", basicInfo, inventory,
+                (info, stock) -> getRegionalPrice(productId, info.price(), stock.region()));
+        
+        graph.run();
+        
+        return new ProductDetails(
+            productId,
+            basicInfo.get().name(),
+            price.get(),
+            inventory.get().stockLevel(),
+            basicInfo.get().rating(),
+            reviews.get(),
+            similarProducts.get()
+        );
+    }
+    
+    // Backend calls guarded by their circuit breakers, also used by ProductDetailsCache
+    
+    ProductBasicInfo loadBasicInfo(String productId) throws Exception {
+        return basicInfoBreaker.call(() -> getBasicProductInfo(productId));
+    }
+    
+    InventoryInfo loadInventory(String productId) throws Exception {
+        return inventoryBreaker.call(() -> getInventoryInfo(productId));
+    }
+    
+    java.util.List<Review> loadReviews(String productId) throws Exception {
+        return reviewsBreaker.call(() -> getProductReviews(productId));
+    }
+    
+    java.util.List<SimilarProduct> loadSimilarProducts(String productId) throws Exception {
+        return similarProductsBreaker.call(() -> getSimilarProducts(productId));
+    }
+    
     // Simulated service calls to various backends
     
     private ProductBasicInfo getBasicProductInfo(String productId) throws Exception {
         System.out.println("Fetching basic product info...");
-        simulateServiceCall(800);
+        simulateServiceCall("basic-info", 800);
         
         // Simulate a service response
         return new ProductBasicInfo(
             "Ergonomic Office Chair",
             299.99,
-            4.7
+            4.7,
+            "office-furniture"
         );
     }
     
     private InventoryInfo getInventoryInfo(String productId) throws Exception {
         System.out.println("Fetching inventory information...");
-        simulateServiceCall(500);
+        simulateServiceCall("inventory", 500);
+        
+        return new InventoryInfo(42, true, "EU-WEST");
+    }
+    
+    private double getRegionalPrice(String productId, double basePrice, String region) throws Exception {
+        System.out.println("Fetching price for region " + region + "...");
+        simulateServiceCall("pricing", 300);
         
-        return new InventoryInfo(42, true);
+        return region.startsWith("EU") ? basePrice * 1.2 : basePrice;
     }
     
     private java.util.List<Review> getProductReviews(String productId) throws Exception {
         System.out.println("Fetching customer reviews...");
-        simulateServiceCall(1000);
+        simulateServiceCall("reviews", 1000);
         
         // Simulate reviews
         return java.util.List.of(
@@ -108,7 +226,7 @@ public class ProductService {
     
     private java.util.List<SimilarProduct> getSimilarProducts(String productId) throws Exception {
         System.out.println("Fetching similar products...");
-        simulateServiceCall(700);
+        simulateServiceCall("similar-products", 700);
         
         // Simulate similar products
         return java.util.List.of(
@@ -118,9 +236,20 @@ public class ProductService {
         );
     }
     
-    private void simulateServiceCall(long millis) throws Exception {
+    private java.util.List<SimilarProduct> getSimilarProductsInCategory(String productId, String category)
+            throws Exception {
+        System.out.println("Fetching similar products in category " + category + "...");
+        return getSimilarProducts(productId);
+    }
+    
+    private void simulateServiceCall(String backend, long millis) throws Exception {
         Thread.sleep(Duration.ofMillis(millis));
         
+        // A backend in an outage fails every call, after its usual latency
+        if (unavailableBackends.contains(backend)) {
+            throw new Exception("Service " + backend + " unavailable");
+        }
+        
         // Occasionally fail to simulate real-world issues
         if (java.util.concurrent.ThreadLocalRandom.current().nextInt(20) == 0) {
             throw new Exception("Service temporarily unavailable");
@@ -139,9 +268,9 @@ public class ProductService {
         java.util.List<SimilarProduct> similarProducts
     ) {}
     
-    record ProductBasicInfo(String name, double price, double rating) {}
+    record ProductBasicInfo(String name, double price, double rating, String category) {}
     
-    record InventoryInfo(int stockLevel, boolean inStock) {}
+    record InventoryInfo(int stockLevel, boolean inStock, String region) {}
     
     record Review(String text, int rating, String reviewer) {}
     
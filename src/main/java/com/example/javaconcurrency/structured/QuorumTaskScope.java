@@ -0,0 +1,264 @@
+package com.example.javaconcurrency.structured;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A StructuredTaskScope for quorum reads: it completes once {@code quorum} subtasks have
+ * succeeded, or fails fast once more than {@code failureBudget} subtasks have failed, and
+ * cancels whatever is still running either way.
+ * <p>
+ * Results are collected without locks from the subtask threads in {@code handleComplete}, and
+ * can be consumed as they arrive through {@link #completions()} instead of waiting for the
+ * quorum. Subtasks may return {@code null}; it is a result like any other.
+ * <pre>{@code
+ * try (var scope = new QuorumTaskScope<String>(2, 1)) {
+ *     replicas.forEach(replica -> scope.fork(() -> read(replica)));
+ *     for (String value : scope.completions()) {
+ *         render(value);                  // first value is available immediately
+ *     }
+ *     scope.throwIfQuorumNotReached();    // iteration has already joined the scope
+ * }
+ * }</pre>
+ */
+public class QuorumTaskScope<T> extends StructuredTaskScope<T> {
+
+    private static final Object END = new Object();
+
+    // Wraps each result, so null results can be queued and told apart from "nothing yet"
+    private record Result<T>(T value) {}
+
+    private final int quorum;
+    private final int failureBudget;
+    private final ConcurrentLinkedQueue<Result<T>> results = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    private final LinkedTransferQueue<Object> completions = new LinkedTransferQueue<>();
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
+    // Starts at 1 so the count cannot reach zero while the owner is still forking
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final AtomicBoolean sealed = new AtomicBoolean();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    public QuorumTaskScope(int quorum, int failureBudget) {
+        super("QuorumTaskScope", Thread.ofVirtual().factory());
+        if (quorum < 1 || failureBudget < 0) {
+            throw new IllegalArgumentException("quorum=" + quorum + ", failureBudget=" + failureBudget);
+        }
+        this.quorum = quorum;
+        this.failureBudget = failureBudget;
+    }
+
+    /**
+     * Forks a subtask. Forking is closed once the owner joins or starts iterating
+     * {@link #completions()}, since the scope then knows how many subtasks to wait for.
+     */
+    @Override
+    public <U extends T> Subtask<U> fork(Callable<? extends U> task) {
+        if (sealed.get()) {
+            throw new IllegalStateException("Cannot fork after join or completions()");
+        }
+        pending.incrementAndGet();
+        return super.fork(task);
+    }
+
+    @Override
+    protected void handleComplete(Subtask<? extends T> subtask) {
+        try {
+            if (subtask.state() == Subtask.State.SUCCESS && !finished.get()) {
+                var result = new Result<T>(subtask.get());
+                results.add(result);
+                completions.add(result);
+                if (successes.incrementAndGet() == quorum) {
+                    shutdown();
+                }
+            } else if (subtask.state() == Subtask.State.FAILED) {
+                failures.add(subtask.exception());
+                if (failureCount.incrementAndGet() > failureBudget) {
+                    shutdown();
+                }
+            }
+        } finally {
+            // Always, or completions() would wait for this subtask forever
+            if (pending.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        finish();
+        super.shutdown();
+    }
+
+    @Override
+    public QuorumTaskScope<T> join() throws InterruptedException {
+        seal();
+        super.join();
+        return this;
+    }
+
+    @Override
+    public QuorumTaskScope<T> joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+        seal();
+        super.joinUntil(deadline);
+        return this;
+    }
+
+    /**
+     * Returns the successful results in completion order as they arrive. Iteration blocks
+     * until the next result, and ends once the quorum is reached, the failure budget is
+     * exceeded or every subtask has completed, after which the scope has been joined.
+     * Must be called by the owner once all subtasks are forked.
+     */
+    public Iterable<T> completions() {
+        return completions(null);
+    }
+
+    /**
+     * Like {@link #completions()}, but iteration shuts the scope down and ends when
+     * {@code deadline} passes.
+     */
+    public Iterable<T> completions(Instant deadline) {
+        seal();
+        return () -> new CompletionIterator(deadline);
+    }
+
+    public boolean quorumReached() {
+        return successes.get() >= quorum;
+    }
+
+    /**
+     * Returns the successful results in completion order; at least {@code quorum} of them
+     * when the quorum was reached.
+     */
+    public List<T> results() {
+        ensureOwnerAndJoined();
+        List<T> values = new ArrayList<>(results.size());
+        for (Result<T> result : results) {
+            values.add(result.value());
+        }
+        return values;
+    }
+
+    public List<Throwable> failures() {
+        ensureOwnerAndJoined();
+        return new ArrayList<>(failures);
+    }
+
+    /**
+     * Throws if fewer than {@code quorum} subtasks succeeded. The first failure is the cause
+     * and the others are attached as suppressed exceptions.
+     */
+    public void throwIfQuorumNotReached() throws ExecutionException {
+        ensureOwnerAndJoined();
+        if (quorumReached()) {
+            return;
+        }
+        var message = "Quorum not reached: " + successes.get() + " of " + quorum
+                + " succeeded, " + failureCount.get() + " failed";
+        Throwable cause = failures.peek();
+        var exception = new ExecutionException(message, cause);
+        for (Throwable t : failures) {
+            if (t != cause) {
+                exception.addSuppressed(t);
+            }
+        }
+        throw exception;
+    }
+
+    private void seal() {
+        if (sealed.compareAndSet(false, true) && pending.decrementAndGet() == 0) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (finished.compareAndSet(false, true)) {
+            completions.add(END);
+        }
+    }
+
+    private class CompletionIterator implements Iterator<T> {
+        private final Instant deadline;
+        private Result<T> next;
+        private boolean done;
+
+        CompletionIterator(Instant deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            Object taken;
+            try {
+                taken = deadline == null ? completions.take() : poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                taken = END;
+            }
+            if (taken == END) {
+                done = true;
+                joinQuietly();
+                return false;
+            }
+            next = cast(taken);
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next.value();
+            next = null;
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Result<T> cast(Object taken) {
+            // Everything in the queue except END is a Result<T>
+            return (Result<T>) taken;
+        }
+
+        private Object poll() throws InterruptedException {
+            long remaining = Duration.between(Instant.now(), deadline).toNanos();
+            Object polled = completions.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+            if (polled == null) {
+                // Deadline passed: cancel the stragglers and end the iteration
+                shutdown();
+                return END;
+            }
+            return polled;
+        }
+
+        private void joinQuietly() {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.javaconcurrency.structured;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Races a call across replicas like {@code ShutdownOnSuccess}, but without sending every
+ * request to every replica.
+ * <p>
+ * Each race starts on the replica with the best score, the EWMA of its latency scaled by the
+ * calls it currently has in flight, so a fast replica that is already busy loses its turn. The
+ * next replica is only forked if the previous one failed or has not answered within
+ * {@code hedgeDelay}. The first success wins and the scope cancels the rest. Replicas without
+ * a latency estimate yet score zero, so every replica gets measured early on.
+ * <p>
+ * Cancelled attempts still count: a replica that was cancelled after running longer than its
+ * estimate feeds that time into its EWMA as a sample, and a failure is recorded as at least
+ * twice its estimate.
+ */
+public class ReplicaRacer<R> {
+
+    private final List<Replica<R>> replicas;
+    private final long hedgeDelayNanos;
+    private final double alpha;
+    private final LongAdder races = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        var servers = List.of("server1.example.com", "server2.example.com", "server3.example.com");
+        int requests = 200;
+
+        // Everyone races all three servers, as ShutdownOnSuccess does
+        var broadcastCalls = new AtomicInteger();
+        var broadcastLatencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            try (var scope = new StructuredTaskScope.ShutdownOnSuccess<String>()) {
+                for (String server : servers) {
+                    scope.fork(() -> {
+                        broadcastCalls.incrementAndGet();
+                        return checkServer(server);
+                    });
+                }
+                scope.join().result();
+            }
+            broadcastLatencies[i] = System.nanoTime() - start;
+        }
+
+        // The racer starts on the fastest server and hedges after 60ms
+        var racer = new ReplicaRacer<>(servers, Duration.ofMillis(60), 0.2);
+        var racerLatencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            racer.call(server -> () -> checkServer(server));
+            racerLatencies[i] = System.nanoTime() - start;
+        }
+
+        System.out.println("Broadcast: " + summary(broadcastLatencies, broadcastCalls.get(), requests));
+        System.out.println("Racer:     " + summary(racerLatencies, racer.calls(), requests));
+        System.out.println("Estimates: " + racer.estimates());
+    }
+
+    public ReplicaRacer(List<R> replicas, Duration hedgeDelay, double alpha) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.hedgeDelayNanos = hedgeDelay.toNanos();
+        this.alpha = alpha;
+    }
+
+    /**
+     * Returns the result of the first replica to succeed.
+     *
+     * @throws ExecutionException if every replica failed
+     */
+    public <T> T call(Function<? super R, Callable<? extends T>> call)
+            throws InterruptedException, ExecutionException {
+        try {
+            return call(call, null);
+        } catch (TimeoutException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Like {@link #call(Function)}, but gives up and cancels every attempt at {@code deadline}.
+     */
+    public <T> T call(Function<? super R, Callable<? extends T>> call, Instant deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        races.increment();
+        List<Replica<R>> order = ranked();
+        try (var scope = new RaceScope<T>()) {
+            for (int i = 0; i < order.size(); i++) {
+                Replica<R> replica = order.get(i);
+                scope.fork(attempt(replica, call.apply(replica.replica)));
+                if (i == order.size() - 1 || scope.awaitHedge(hedgeDelayNanos, deadline)
+                        || (deadline != null && !Instant.now().isBefore(deadline))) {
+                    break;
+                }
+            }
+            if (deadline == null) {
+                scope.join();
+            } else {
+                scope.joinUntil(deadline);
+            }
+            return scope.result();
+        }
+    }
+
+    /**
+     * Returns the current latency estimate of each replica.
+     */
+    public String estimates() {
+        var sb = new StringBuilder();
+        for (Replica<R> replica : replicas) {
+            if (!sb.isEmpty()) {
+                sb.append(", ");
+            }
+            sb.append(replica.replica).append('=')
+              .append(TimeUnit.NANOSECONDS.toMillis(replica.ewmaNanos.get())).append("ms");
+        }
+        return sb.toString();
+    }
+
+    public long races() {
+        return races.sum();
+    }
+
+    /**
+     * Returns the number of replica calls made across all races.
+     */
+    public long calls() {
+        return calls.sum();
+    }
+
+    private List<Replica<R>> ranked() {
+        List<Replica<R>> order = new ArrayList<>(replicas);
+        // Scores are sampled once so the sort sees a consistent view
+        double[] scores = new double[order.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = order.get(i).score();
+        }
+        // Insertion sort: replica lists are short
+        for (int i = 1; i < scores.length; i++) {
+            for (int j = i; j > 0 && scores[j] < scores[j - 1]; j--) {
+                double score = scores[j];
+                scores[j] = scores[j - 1];
+                scores[j - 1] = score;
+                Replica<R> replica = order.get(j);
+                order.set(j, order.get(j - 1));
+                order.set(j - 1, replica);
+            }
+        }
+        return order;
+    }
+
+    private <T> Callable<T> attempt(Replica<R> replica, Callable<? extends T> call) {
+        return () -> {
+            calls.increment();
+            replica.inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                T result = call.call();
+                replica.record(System.nanoTime() - start, alpha);
+                return result;
+            } catch (InterruptedException e) {
+                // Cancelled because another replica won: it was at least this slow
+                replica.recordAtLeast(System.nanoTime() - start, alpha);
+                throw e;
+            } catch (Exception e) {
+                replica.record(Math.max(System.nanoTime() - start, 2 * replica.ewmaNanos.get()), alpha);
+                throw e;
+            } finally {
+                replica.inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    private static final class Replica<R> {
+        final R replica;
+        final AtomicLong ewmaNanos = new AtomicLong();
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Replica(R replica) {
+            this.replica = replica;
+        }
+
+        double score() {
+            return (double) ewmaNanos.get() * (inFlight.get() + 1);
+        }
+
+        void record(long sampleNanos, double alpha) {
+            ewmaNanos.updateAndGet(ewma -> ewma == 0 ? sampleNanos
+                    : ewma + (long) (alpha * (sampleNanos - ewma)));
+        }
+
+        void recordAtLeast(long elapsedNanos, double alpha) {
+            ewmaNanos.updateAndGet(ewma -> elapsedNanos <= ewma ? ewma
+                    : ewma + (long) (alpha * (elapsedNanos - ewma)));
+        }
+    }
+
+    /**
+     * Keeps the first success and wakes the owner whenever an attempt completes, so it can
+     * stop hedging on success or fork the next replica straight away on failure.
+     */
+    private static class RaceScope<T> extends StructuredTaskScope<T> {
+        private final AtomicReference<T> result = new AtomicReference<>();
+        private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        private final Semaphore completions = new Semaphore(0);
+        private volatile boolean succeeded;
+
+        RaceScope() {
+            super("RaceScope", Thread.ofVirtual().factory());
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends T> subtask) {
+            if (subtask.state() == Subtask.State.SUCCESS) {
+                if (result.compareAndSet(null, subtask.get())) {
+                    succeeded = true;
+                    shutdown();
+                }
+            } else if (subtask.state() == Subtask.State.FAILED) {
+                failures.add(subtask.exception());
+            }
+            completions.release();
+        }
+
+        /**
+         * Waits up to {@code delayNanos} for the latest attempt, returning whether the race is
+         * already won. A failure returns early so the next replica is tried immediately.
+         */
+        boolean awaitHedge(long delayNanos, Instant deadline) throws InterruptedException {
+            if (deadline != null) {
+                delayNanos = Math.min(delayNanos, Duration.between(Instant.now(), deadline).toNanos());
+            }
+            completions.tryAcquire(Math.max(delayNanos, 0), TimeUnit.NANOSECONDS);
+            return succeeded;
+        }
+
+        T result() throws ExecutionException {
+            ensureOwnerAndJoined();
+            if (succeeded) {
+                return result.get();
+            }
+            var all = new ArrayList<>(failures);
+            var exception = new ExecutionException("All replicas failed",
+                    all.isEmpty() ? null : all.get(0));
+            for (int i = 1; i < all.size(); i++) {
+                exception.addSuppressed(all.get(i));
+            }
+            throw exception;
+        }
+    }
+
+    // Simulated replicas: server3 is usually fastest but has a slow tail
+
+    private static String checkServer(String server) throws Exception {
+        var random = ThreadLocalRandom.current();
+        long delay = switch (server) {
+            case "server1.example.com" -> random.nextLong(80, 120);
+            case "server2.example.com" -> random.nextLong(150, 250);
+            default -> random.nextInt(100) < 5 ? random.nextLong(300, 500) : random.nextLong(30, 50);
+        };
+        Thread.sleep(delay);
+        if (random.nextInt(100) < 2) {
+            throw new Exception("Server " + server + " failed to respond");
+        }
+        return "Response from " + server;
+    }
+
+    private static String summary(long[] latencies, long calls, int requests) {
+        var sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %3dms, p99 %3dms, %.2f backend calls per request",
+                TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length / 2]),
+                TimeUnit.NANOSECONDS.toMillis(sorted[(int) Math.ceil(sorted.length * 0.99) - 1]),
+                (double) calls / requests);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.javaconcurrency.structured;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records what the subtasks of a fan-out actually did, for any StructuredTaskScope.
+ * <p>
+ * Wrap each forked task with {@link #instrument} and join through {@link #join} or
+ * {@link #joinUntil}:
+ * <pre>{@code
+ * try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+ *     var user = scope.fork(metrics.instrument("user", () -> findUser()));
+ *     var order = scope.fork(metrics.instrument("order", () -> fetchOrder()));
+ *     metrics.join(scope).throwIfFailed();
+ * }
+ * }</pre>
+ * Per branch it keeps latency and fork-to-start delay histograms, counts of subtasks that
+ * ended SUCCESS, FAILED or UNAVAILABLE (cancelled by shutdown), and the running time thrown
+ * away by cancellation. A cancelled subtask's running time also goes into the latency
+ * histogram as a lower bound, so a branch that is always cancelled for being slowest still
+ * ranks slowest. {@link #report()} lists branches slowest first. Recording is a few
+ * lock-free increments; with JFR enabled each subtask and join also emits an event.
+ */
+public class ScopeMetrics {
+
+    private final String scopeName;
+    private final boolean jfrEnabled;
+    private final ConcurrentHashMap<String, BranchStats> branches = new ConcurrentHashMap<>();
+    private final LatencyHistogram joinWait = new LatencyHistogram();
+
+    public ScopeMetrics(String scopeName) {
+        this(scopeName, true);
+    }
+
+    public ScopeMetrics(String scopeName, boolean jfrEnabled) {
+        this.scopeName = scopeName;
+        this.jfrEnabled = jfrEnabled;
+    }
+
+    /**
+     * Wraps a task to be forked right away; the fork-to-start delay is measured from here.
+     */
+    public <T> Callable<T> instrument(String branch, Callable<T> task) {
+        var stats = branches.computeIfAbsent(branch, name -> new BranchStats());
+        long forkedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            var event = jfrEnabled ? new SubtaskEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            var state = StructuredTaskScope.Subtask.State.FAILED;
+            try {
+                T result = task.call();
+                // Shutdown interrupts running subtasks; a result produced afterwards is discarded
+                state = Thread.currentThread().isInterrupted()
+                        ? StructuredTaskScope.Subtask.State.UNAVAILABLE
+                        : StructuredTaskScope.Subtask.State.SUCCESS;
+                return result;
+            } catch (Exception e) {
+                if (isCancellation(e)) {
+                    state = StructuredTaskScope.Subtask.State.UNAVAILABLE;
+                }
+                throw e;
+            } finally {
+                long endedAt = System.nanoTime();
+                stats.record(state, startedAt - forkedAt, endedAt - startedAt);
+                if (event != null) {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.scope = scopeName;
+                        event.branch = branch;
+                        event.state = state.name();
+                        event.forkToStart = startedAt - forkedAt;
+                        event.commit();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Joins the scope and records how long the owner waited.
+     */
+    public <S extends StructuredTaskScope<?>> S join(S scope) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            scope.join();
+        } finally {
+            recordJoin(System.nanoTime() - start, false);
+        }
+        return scope;
+    }
+
+    public <S extends StructuredTaskScope<?>> S joinUntil(S scope, Instant deadline)
+            throws InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        boolean timedOut = true;
+        try {
+            scope.joinUntil(deadline);
+            timedOut = false;
+        } finally {
+            recordJoin(System.nanoTime() - start, timedOut);
+        }
+        return scope;
+    }
+
+    /**
+     * Returns the branch with the highest latency at the given percentile, or null if nothing
+     * has been recorded.
+     */
+    public String slowestBranch(double percentile) {
+        String slowest = null;
+        long slowestNanos = -1;
+        for (var entry : branches.entrySet()) {
+            long nanos = entry.getValue().latency.valueAtPercentile(percentile);
+            if (nanos > slowestNanos) {
+                slowest = entry.getKey();
+                slowestNanos = nanos;
+            }
+        }
+        return slowest;
+    }
+
+    public LatencyHistogram latency(String branch) {
+        var stats = branches.get(branch);
+        return stats == null ? null : stats.latency;
+    }
+
+    public LatencyHistogram joinWait() {
+        return joinWait;
+    }
+
+    /**
+     * Returns one line per branch, slowest p99 first, followed by the join wait.
+     */
+    public String report() {
+        var names = new ArrayList<>(branches.keySet());
+        names.sort(Comparator.comparingLong(
+                (String name) -> branches.get(name).latency.valueAtPercentile(99)).reversed());
+        List<String> lines = new ArrayList<>();
+        lines.add("Scope " + scopeName + ":");
+        for (String name : names) {
+            var stats = branches.get(name);
+            lines.add(String.format("  %-16s p50 %6.1fms  p99 %6.1fms  start p99 %6.2fms  "
+                            + "ok %d  failed %d  cancelled %d  wasted %dms",
+                    name,
+                    millis(stats.latency.valueAtPercentile(50)),
+                    millis(stats.latency.valueAtPercentile(99)),
+                    millis(stats.startDelay.valueAtPercentile(99)),
+                    stats.succeeded.sum(), stats.failed.sum(), stats.cancelled.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(stats.wastedNanos.sum())));
+        }
+        lines.add(String.format("  join wait        p50 %6.1fms  p99 %6.1fms",
+                millis(joinWait.valueAtPercentile(50)), millis(joinWait.valueAtPercentile(99))));
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private void recordJoin(long waitedNanos, boolean timedOut) {
+        joinWait.record(waitedNanos);
+        if (jfrEnabled) {
+            var event = new JoinEvent();
+            if (event.shouldCommit()) {
+                event.scope = scopeName;
+                event.waited = waitedNanos;
+                event.timedOut = timedOut;
+                event.commit();
+            }
+        }
+    }
+
+    private static boolean isCancellation(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return Thread.currentThread().isInterrupted();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class BranchStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram startDelay = new LatencyHistogram();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder wastedNanos = new LongAdder();
+
+        void record(StructuredTaskScope.Subtask.State state, long startDelayNanos, long latencyNanos) {
+            startDelay.record(startDelayNanos);
+            switch (state) {
+                case SUCCESS -> {
+                    latency.record(latencyNanos);
+                    succeeded.increment();
+                }
+                case FAILED -> {
+                    latency.record(latencyNanos);
+                    failed.increment();
+                }
+                case UNAVAILABLE -> {
+                    // It would have taken at least this long
+                    latency.record(latencyNanos);
+                    cancelled.increment();
+                    wastedNanos.add(latencyNanos);
+                }
+            }
+        }
+    }
+
+    @Name("com.example.javaconcurrency.structured.Subtask")
+    @Label("Structured Subtask")
+    @Category("Structured Concurrency")
+    static class SubtaskEvent extends Event {
+        @Label("Scope")
+        String scope;
+
+        @Label("Branch")
+        String branch;
+
+        @Label("State")
+        String state;
+
+        @Label("Fork To Start")
+        @Timespan
+        long forkToStart;
+    }
+
+    @Name("com.example.javaconcurrency.structured.ScopeJoin")
+    @Label("Structured Scope Join")
+    @Category("Structured Concurrency")
+    static class JoinEvent extends Event {
+        @Label("Scope")
+        String scope;
+
+        @Label("Waited")
+        @Timespan
+        long waited;
+
+        @Label("Timed Out")
+        boolean timedOut;
+    }
+}
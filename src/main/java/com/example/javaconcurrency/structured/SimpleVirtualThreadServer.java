@@ -1,5 +1,6 @@
 package com.example.javaconcurrency.structured;
 
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -10,6 +11,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 /**
@@ -19,22 +21,104 @@ import java.util.concurrent.Executors;
 public class SimpleVirtualThreadServer {
 
     public static void main(String[] args) throws IOException {
-        // Create and configure HTTP server
         int port = 8080;
+        start(port, AdmissionController.defaults());
+        System.out.println("Server started on port " + port);
+        System.out.println("Try: http://localhost:" + port + "/hello");
+        System.out.println("     http://localhost:" + port + "/sleep?ms=2000");
+    }
+    
+    /**
+     * Creates and starts the server; port 0 picks a free port. Requests over the admission
+     * limits are answered with 503; a null controller admits everything.
+     */
+    static HttpServer start(int port, AdmissionController admission) throws IOException {
+        // Use virtual threads for request handling
+        return start(port, admission, Executors.newVirtualThreadPerTaskExecutor());
+    }
+    
+    /**
+     * Creates and starts the server with handlers running on {@code executor}, for example a
+     * fixed platform pool to compare against. The caller shuts the executor down after
+     * stopping the server.
+     */
+    static HttpServer start(int port, AdmissionController admission, Executor executor) throws IOException {
+        // Create and configure HTTP server
         HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
         
         // Register endpoints
-        server.createContext("/hello", new HelloHandler());
-        server.createContext("/sleep", new SleepingHandler());
+        var contexts = java.util.List.of(
+                server.createContext("/hello", new HelloHandler()),
+                server.createContext("/sleep", new SleepingHandler()));
         
-        // Use virtual threads for request handling
-        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        // Shed load per route before a handler runs
+        if (admission != null) {
+            contexts.forEach(context -> context.getFilters().add(new AdmissionFilter(admission)));
+        }
+        
+        server.setExecutor(executor);
         
         // Start the server
         server.start();
-        System.out.println("Server started on port " + port);
-        System.out.println("Try: http://localhost:" + port + "/hello");
-        System.out.println("     http://localhost:" + port + "/sleep?ms=2000");
+        return server;
+    }
+    
+    // Set -Dserver.logRequests=false to keep load tests from measuring the console
+    static final boolean LOG_REQUESTS =
+            Boolean.parseBoolean(System.getProperty("server.logRequests", "true"));
+    
+    /**
+     * A status code and JSON body, shared by the HttpServer handlers and {@link NioHttpServer}.
+     */
+    record JsonResponse(int statusCode, String body) {}
+    
+    /**
+     * Admits a request through the controller, or answers 503 with Retry-After straight away.
+     */
+    static class AdmissionFilter extends Filter {
+        private final AdmissionController admission;
+        
+        AdmissionFilter(AdmissionController admission) {
+            this.admission = admission;
+        }
+        
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            var route = exchange.getHttpContext().getPath();
+            var permit = admission.tryAcquire(route);
+            if (permit == null) {
+                try {
+                    exchange.getResponseHeaders().set("Retry-After",
+                            String.valueOf(admission.policy(route).retryAfterSeconds()));
+                    var response = overloaded(route);
+                    sendJsonResponse(exchange, response.statusCode(), response.body());
+                } finally {
+                    exchange.close();
+                }
+                return;
+            }
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                permit.release();
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "Admission control";
+        }
+    }
+    
+    static JsonResponse overloaded(String route) {
+        String response = """
+            {
+              "error": "Service Unavailable",
+              "message": "Too many concurrent requests to %s, please retry later"
+            }
+            """.formatted(route);
+        
+        return new JsonResponse(503, response);
     }
     
     /**
@@ -44,20 +128,8 @@ public class SimpleVirtualThreadServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
-                String response = """
-                    {
-                      "message": "Hello from Virtual Thread!",
-                      "thread": "%s",
-                      "threadId": %d,
-                      "isVirtual": %b
-                    }
-                    """.formatted(
-                        Thread.currentThread().getName(),
-                        Thread.currentThread().threadId(),
-                        Thread.currentThread().isVirtual()
-                    );
-                
-                sendJsonResponse(exchange, 200, response);
+                var response = hello();
+                sendJsonResponse(exchange, response.statusCode(), response.body());
                 
             } finally {
                 exchange.close();
@@ -72,66 +144,9 @@ public class SimpleVirtualThreadServer {
     static class SleepingHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            Instant start = Instant.now();
-            String query = exchange.getRequestURI().getQuery();
-            
             try {
-                // Parse sleep duration from query parameter
-                long sleepMs = 1000; // Default
-                if (query != null && query.startsWith("ms=")) {
-                    sleepMs = Long.parseLong(query.substring(3));
-                }
-                
-                // Limit maximum sleep time to 10 seconds
-                sleepMs = Math.min(sleepMs, 10000);
-                
-                System.out.printf("Thread %s sleeping for %d ms%n", 
-                        Thread.currentThread().getName(), sleepMs);
-                
-                // Sleep - this would block a platform thread, but not a virtual thread
-                Thread.sleep(sleepMs);
-                
-                // Calculate actual duration
-                Duration duration = Duration.between(start, Instant.now());
-                
-                String response = """
-                    {
-                      "message": "Slept for %d milliseconds",
-                      "requestedSleepMs": %d,
-                      "actualDurationMs": %d,
-                      "thread": "%s",
-                      "isVirtual": %b
-                    }
-                    """.formatted(
-                        sleepMs,
-                        sleepMs,
-                        duration.toMillis(),
-                        Thread.currentThread().getName(),
-                        Thread.currentThread().isVirtual()
-                    );
-                
-                sendJsonResponse(exchange, 200, response);
-                
-            } catch (InterruptedException e) {
-                String response = """
-                    {
-                      "error": "Sleep interrupted",
-                      "message": "%s"
-                    }
-                    """.formatted(e.getMessage());
-                
-                sendJsonResponse(exchange, 500, response);
-                Thread.currentThread().interrupt();
-                
-            } catch (NumberFormatException e) {
-                String response = """
-                    {
-                      "error": "Invalid sleep parameter", 
-                      "message": "Please provide a valid number of milliseconds (e.g., /sleep?ms=2000)"
-                    }
-                    """;
-                
-                sendJsonResponse(exchange, 400, response);
+                var response = sleep(exchange.getRequestURI().getQuery());
+                sendJsonResponse(exchange, response.statusCode(), response.body());
                 
             } finally {
                 exchange.close();
@@ -139,6 +154,88 @@ public class SimpleVirtualThreadServer {
         }
     }
     
+    static JsonResponse hello() {
+        String response = """
+            {
+              "message": "Hello from Virtual Thread!",
+              "thread": "%s",
+              "threadId": %d,
+              "isVirtual": %b
+            }
+            """.formatted(
+                Thread.currentThread().getName(),
+                Thread.currentThread().threadId(),
+                Thread.currentThread().isVirtual()
+            );
+        
+        return new JsonResponse(200, response);
+    }
+    
+    static JsonResponse sleep(String query) {
+        Instant start = Instant.now();
+        
+        try {
+            // Parse sleep duration from query parameter
+            long sleepMs = 1000; // Default
+            if (query != null && query.startsWith("ms=")) {
+                sleepMs = Long.parseLong(query.substring(3));
+            }
+            
+            // Limit maximum sleep time to 10 seconds
+            sleepMs = Math.min(sleepMs, 10000);
+            
+            if (LOG_REQUESTS) {
+                System.out.printf("Thread %s sleeping for %d ms%n", 
+                        Thread.currentThread().getName(), sleepMs);
+            }
+            
+            // Sleep - this would block a platform thread, but not a virtual thread
+            Thread.sleep(sleepMs);
+            
+            // Calculate actual duration
+            Duration duration = Duration.between(start, Instant.now());
+            
+            String response = """
+                {
+                  "message": "Slept for %d milliseconds",
+                  "requestedSleepMs": %d,
+                  "actualDurationMs": %d,
+                  "thread": "%s",
+                  "isVirtual": %b
+                }
+                """.formatted(
+                    sleepMs,
+                    sleepMs,
+                    duration.toMillis(),
+                    Thread.currentThread().getName(),
+                    Thread.currentThread().isVirtual()
+                );
+            
+            return new JsonResponse(200, response);
+            
+        } catch (InterruptedException e) {
+            String response = """
+                {
+                  "error": "Sleep interrupted",
+                  "message": "%s"
+                }
+                """.formatted(e.getMessage());
+            
+            Thread.currentThread().interrupt();
+            return new JsonResponse(500, response);
+            
+        } catch (NumberFormatException e) {
+            String response = """
+                {
+                  "error": "Invalid sleep parameter", 
+                  "message": "Please provide a valid number of milliseconds (e.g., /sleep?ms=2000)"
+                }
+                """;
+            
+            return new JsonResponse(400, response);
+        }
+    }
+    
     /**
      * Helper method to send JSON response.
      */
@@ -2,9 +2,11 @@ package com.example.javaconcurrency.structured;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * This example demonstrates using structured concurrency with timeouts
@@ -20,11 +22,15 @@ public class StructuredTimeoutDemo {
         runWithTimeout(1000); // Should complete normally
         runWithTimeout(300);  // Should timeout
         
+        // Let the deadline follow the latency the services actually show
+        runWithAdaptiveTimeout(40);
+        
         System.out.println("\nKey takeaways:");
         System.out.println("1. Use joinUntil() to set timeouts with structured concurrency");
         System.out.println("2. Timeouts automatically cancel all subtasks");
         System.out.println("3. You can implement fallbacks for timeout scenarios");
         System.out.println("4. This is useful for implementing resilient systems");
+        System.out.println("5. Adaptive deadlines track real latency instead of guessing a fixed value");
     }
     
     /**
@@ -92,6 +98,76 @@ public class StructuredTimeoutDemo {
         }
     }
     
+    /**
+     * Run the same three calls repeatedly with a deadline taken from each service's recent
+     * p95 latency plus a 50ms margin. The first rounds use the initial 1000ms timeout; after
+     * that the deadline settles just above the slowest service's tail.
+     */
+    private static void runWithAdaptiveTimeout(int rounds) {
+        System.out.println("\nRunning " + rounds + " rounds with an adaptive p95 + 50ms timeout:");
+        
+        var deadlines = new AdaptiveDeadline(95.0, Duration.ofMillis(50), Duration.ofMillis(1000),
+                Duration.ofMillis(100), Duration.ofMillis(2000));
+        int timeouts = 0;
+        
+        for (int round = 1; round <= rounds; round++) {
+            try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                Instant start = Instant.now();
+                Instant deadline = deadlines.deadline("Service A", "Service B", "Service C");
+                
+                // Fork the calls through the tracker so it learns their latency
+                var serviceA = scope.fork(deadlines.timed("Service A", deadline,
+                        () -> callService("Service A", ThreadLocalRandom.current().nextInt(400, 600))));
+                var serviceB = scope.fork(deadlines.timed("Service B", deadline,
+                        () -> callService("Service B", ThreadLocalRandom.current().nextInt(200, 800))));
+                var serviceC = scope.fork(deadlines.timed("Service C", deadline,
+                        () -> callService("Service C", ThreadLocalRandom.current().nextInt(300, 700))));
+                
+                String outcome;
+                try {
+                    scope.joinUntil(deadline);
+                    scope.throwIfFailed();
+                    outcome = "all responded";
+                } catch (TimeoutException e) {
+                    // Fall back to defaults for whichever services missed the deadline
+                    timeouts++;
+                    var results = List.of(
+                            orDefault(serviceA, "DEFAULT_A"),
+                            orDefault(serviceB, "DEFAULT_B"),
+                            orDefault(serviceC, "DEFAULT_C"));
+                    outcome = "timeout, fallbacks used: " + results.stream()
+                            .filter(result -> result.startsWith("DEFAULT_"))
+                            .collect(Collectors.joining(" "));
+                }
+                
+                if (round <= 3 || round % 10 == 0) {
+                    System.out.printf("Round %2d: deadline %4dms, took %4dms, %s%n", round,
+                            Duration.between(start, deadline).toMillis(),
+                            Duration.between(start, Instant.now()).toMillis(), outcome.trim());
+                }
+            } catch (Exception e) {
+                System.out.println("Error: " + e.getMessage());
+            }
+        }
+        
+        System.out.println("Timeouts: " + timeouts + "/" + rounds);
+        System.out.println("Learned timeouts: A=" + deadlines.timeout("Service A").toMillis()
+                + "ms, B=" + deadlines.timeout("Service B").toMillis()
+                + "ms, C=" + deadlines.timeout("Service C").toMillis() + "ms");
+    }
+    
+    private static String orDefault(StructuredTaskScope.Subtask<String> subtask, String defaultValue) {
+        return subtask.state() == StructuredTaskScope.Subtask.State.SUCCESS ? subtask.get() : defaultValue;
+    }
+    
+    /**
+     * Same as {@link #callExternalService} without the logging, for repeated rounds.
+     */
+    private static String callService(String serviceName, long responseTimeMs) throws Exception {
+        Thread.sleep(responseTimeMs);
+        return serviceName + " response at " + Instant.now();
+    }
+    
     /**
      * Simulate calling an external service with variable response time.
      */
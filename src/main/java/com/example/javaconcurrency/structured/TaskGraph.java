@@ -0,0 +1,200 @@
+package com.example.javaconcurrency.structured;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A small dependency-graph executor on top of StructuredTaskScope.
+ * <p>
+ * Tasks are declared together with the tasks whose results they need. Running the graph
+ * forks every task without dependencies; whenever a task completes, it forks each dependent
+ * whose inputs are now all available. Latency is therefore set by the critical path through
+ * the graph rather than by the sum of stages. The first failure shuts down the scope, which
+ * cancels everything still running, and no further tasks are started.
+ * <p>
+ * Dependencies can only refer to tasks declared earlier, so a graph cannot contain cycles.
+ * A graph runs once.
+ */
+public class TaskGraph {
+
+    @FunctionalInterface
+    public interface DependentTask<A, T> {
+        T call(A input) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BiDependentTask<A, B, T> {
+        T call(A first, B second) throws Exception;
+    }
+
+    private final List<Node<?>> nodes = new ArrayList<>();
+    private GraphScope scope;
+
+    /**
+     * A task in the graph; its result is available through {@link #get()} after the graph ran.
+     */
+    public final class Node<T> {
+        private final String name;
+        private final Callable<T> task;
+        private final AtomicInteger pendingInputs;
+        private final List<Node<?>> dependents = new ArrayList<>();
+        private volatile T result;
+        private volatile boolean done;
+
+        private Node(String name, Callable<T> task, int inputs) {
+            this.name = name;
+            this.task = task;
+            this.pendingInputs = new AtomicInteger(inputs);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public T get() {
+            if (!done) {
+                throw new IllegalStateException("Task '" + name + "' has not completed");
+            }
+            return result;
+        }
+
+        private T run() throws Exception {
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                throw new TaskFailedException(name, e);
+            }
+            done = true;
+            for (Node<?> dependent : dependents) {
+                if (dependent.pendingInputs.decrementAndGet() == 0) {
+                    scope.fork(dependent::run);
+                }
+            }
+            return result;
+        }
+    }
+
+    public <T> Node<T> task(String name, Callable<T> task) {
+        return register(new Node<>(name, task, 0));
+    }
+
+    public <A, T> Node<T> task(String name, Node<A> input, DependentTask<A, T> task) {
+        Node<T> node = register(new Node<>(name, () -> task.call(input.get()), 1));
+        dependOn(node, input);
+        return node;
+    }
+
+    public <A, B, T> Node<T> task(String name, Node<A> first, Node<B> second, BiDependentTask<A, B, T> task) {
+        Node<T> node = register(new Node<>(name, () -> task.call(first.get(), second.get()), 2));
+        dependOn(node, first);
+        dependOn(node, second);
+        return node;
+    }
+
+    /**
+     * Runs the graph to completion.
+     *
+     * @throws ExecutionException with the first failed task's exception as the cause
+     */
+    public void run() throws InterruptedException, ExecutionException {
+        try (var graphScope = start()) {
+            graphScope.join();
+            graphScope.throwIfFailed();
+        }
+    }
+
+    /**
+     * Runs the graph, cancelling every unfinished task if it has not completed by the deadline.
+     */
+    public void runUntil(Instant deadline) throws InterruptedException, ExecutionException, TimeoutException {
+        try (var graphScope = start()) {
+            graphScope.joinUntil(deadline);
+            graphScope.throwIfFailed();
+        }
+    }
+
+    private GraphScope start() {
+        if (scope != null) {
+            throw new IllegalStateException("A task graph can only run once");
+        }
+        scope = new GraphScope();
+        for (Node<?> node : nodes) {
+            if (node.pendingInputs.get() == 0) {
+                scope.fork(node::run);
+            }
+        }
+        return scope;
+    }
+
+    private <T> Node<T> register(Node<T> node) {
+        if (scope != null) {
+            throw new IllegalStateException("Cannot add tasks after the graph started");
+        }
+        nodes.add(node);
+        return node;
+    }
+
+    private void dependOn(Node<?> node, Node<?> input) {
+        if (!nodes.contains(input) || input == node) {
+            throw new IllegalArgumentException("Task '" + input.name + "' is not an earlier task of this graph");
+        }
+        input.dependents.add(node);
+    }
+
+    /**
+     * Wraps a task's exception so the failure names the task.
+     */
+    static class TaskFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        TaskFailedException(String taskName, Exception cause) {
+            super("Task '" + taskName + "' failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Shuts down on the first failed subtask and remembers its exception.
+     */
+    private static class GraphScope extends StructuredTaskScope<Object> {
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        GraphScope() {
+            super("TaskGraph", Thread.ofVirtual().factory());
+        }
+
+        @Override
+        protected void handleComplete(Subtask<?> subtask) {
+            if (subtask.state() == Subtask.State.FAILED
+                    && firstFailure.compareAndSet(null, subtask.exception())) {
+                shutdown();
+            }
+        }
+
+        @Override
+        public GraphScope join() throws InterruptedException {
+            super.join();
+            return this;
+        }
+
+        @Override
+        public GraphScope joinUntil(Instant deadline) throws InterruptedException, TimeoutException {
+            super.joinUntil(deadline);
+            return this;
+        }
+
+        void throwIfFailed() throws ExecutionException {
+            ensureOwnerAndJoined();
+            Throwable failure = firstFailure.get();
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+        }
+    }
+}
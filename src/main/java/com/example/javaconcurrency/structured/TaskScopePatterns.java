@@ -5,11 +5,21 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * This class demonstrates different implementations of StructuredTaskScope
@@ -27,6 +37,8 @@ public class TaskScopePatterns {
         shutdownOnFailureExample();
         shutdownOnSuccessExample();
         customShutdownPolicyExample();
+        requiredOptionalExample();
+        quorumExample();
         
         System.out.println("\nAll examples completed.");
     }
@@ -120,6 +132,64 @@ public class TaskScopePatterns {
         }
     }
     
+    /**
+     * Example demonstrating required and optional subtasks. The scope completes as soon
+     * as the required subtasks are done; optional ones that are still running or that
+     * failed fall back to their default values.
+     */
+    private static void requiredOptionalExample() throws InterruptedException, ExecutionException {
+        System.out.println("\n4. Required/Optional Subtasks Example:");
+        
+        try (var scope = new RequiredOptionalTaskScope(Duration.ZERO)) {
+            
+            // The page cannot render without these
+            var usdTask = scope.forkRequired(() -> fetchPrice("USD", 300));
+            var gbpTask = scope.forkRequired(() -> fetchPrice("GBP", 400));
+            
+            // Nice to have: slower than the required calls, so it yields its default
+            var enrichment = scope.forkOptional(() -> processData("enrichment", 1500), "no enrichment");
+            
+            Instant start = Instant.now();
+            scope.join().throwIfFailed();
+            
+            System.out.println("Required results: USD " + usdTask.get() + ", GBP " + gbpTask.get());
+            System.out.println("Optional result: " + enrichment.get());
+            System.out.println("Completed in " + Duration.between(start, Instant.now()).toMillis() + "ms");
+        }
+    }
+    
+    /**
+     * Example demonstrating a quorum read: the value is read from five replicas and the
+     * scope completes once three agree to answer, tolerating one failed replica. Results
+     * are processed as they stream in rather than after the quorum is reached.
+     */
+    private static void quorumExample() throws InterruptedException, ExecutionException {
+        System.out.println("\n5. Quorum Read Example:");
+        
+        try (var scope = new QuorumTaskScope<String>(3, 1)) {
+            
+            // Fork a read against every replica
+            for (int replica = 1; replica <= 5; replica++) {
+                var source = "replica-" + replica;
+                long delay = ThreadLocalRandom.current().nextLong(100, 1000);
+                scope.fork(() -> processData(source, delay));
+            }
+            
+            // Handle each result the moment it arrives
+            Instant start = Instant.now();
+            for (String result : scope.completions(Instant.now().plusMillis(2000))) {
+                System.out.println("+" + Duration.between(start, Instant.now()).toMillis() + "ms " + result);
+            }
+            
+            try {
+                scope.throwIfQuorumNotReached();
+                System.out.println("Quorum of 3 reached with " + scope.failures().size() + " failed replica(s)");
+            } catch (ExecutionException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+    
     // Simulated service calls
 
     private static BigDecimal fetchPrice(String currency, long delay) throws Exception {
@@ -162,10 +232,17 @@ public class TaskScopePatterns {
     /**
      * A custom StructuredTaskScope that collects successful results
      * and completes when a threshold number of results is obtained.
+     * <p>
+     * handleComplete runs concurrently on the forked threads, so results go into a
+     * lock-free queue and the count is atomic; exactly one subtask sees the threshold
+     * reached and shuts the scope down. The queue rejects null, so results are wrapped.
      */
     static class ThresholdTaskScope<T> extends StructuredTaskScope<T> {
+        private record Result<T>(T value) {}
+        
         private final int threshold;
-        private final List<T> results = new ArrayList<>();
+        private final ConcurrentLinkedQueue<Result<T>> results = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger successes = new AtomicInteger();
         
         public ThresholdTaskScope(int threshold) {
             super("ThresholdTaskScope", Thread.ofVirtual().factory());
@@ -180,24 +257,146 @@ public class TaskScopePatterns {
         protected void handleComplete(StructuredTaskScope.Subtask<? extends T> subtask) {
             // Check if the subtask completed successfully
             if (subtask.state() == StructuredTaskScope.Subtask.State.SUCCESS) {
-                try {
-                    // Get the result and add it to our list
-                    results.add(subtask.get());
-                    
-                    // If we've reached the threshold, shut down remaining tasks
-                    if (results.size() >= threshold) {
-                        shutdown();
-                    }
-                } catch (Exception e) {
-                    // This shouldn't happen since we check for SUCCESS state
-                    Thread.currentThread().interrupt();
+                // Add the result to our queue
+                results.add(new Result<>(subtask.get()));
+                
+                // If we've reached the threshold, shut down remaining tasks
+                if (successes.incrementAndGet() == threshold) {
+                    shutdown();
                 }
             }
             // For failed or cancelled tasks, we don't do anything special
         }
         
         public List<T> getResults() {
-            return new ArrayList<>(results);
+            List<T> values = new ArrayList<>(results.size());
+            for (Result<T> result : results) {
+                values.add(result.value());
+            }
+            return values;
+        }
+    }
+    
+    /**
+     * A custom StructuredTaskScope that distinguishes required from optional subtasks.
+     * A failed required subtask shuts the scope down; once every required subtask has
+     * succeeded, optional subtasks get {@code optionalGrace} to finish before the scope
+     * is shut down. Optional subtasks that failed or were cancelled yield their default.
+     */
+    static class RequiredOptionalTaskScope extends StructuredTaskScope<Object> {
+        private final Duration optionalGrace;
+        // Starts at 1 so the count cannot reach zero while the owner is still forking
+        private final AtomicInteger requiredPending = new AtomicInteger(1);
+        private final AtomicBoolean forkingDone = new AtomicBoolean();
+        private final CountDownLatch requiredDone = new CountDownLatch(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Set<Callable<?>> requiredTasks = ConcurrentHashMap.newKeySet();
+        
+        public RequiredOptionalTaskScope(Duration optionalGrace) {
+            super("RequiredOptionalTaskScope", Thread.ofVirtual().factory());
+            this.optionalGrace = optionalGrace;
+        }
+        
+        public <U> Subtask<U> forkRequired(Callable<? extends U> task) {
+            // Fresh wrapper so handleComplete can recognise this fork by identity
+            Callable<? extends U> required = task::call;
+            requiredTasks.add(required);
+            requiredPending.incrementAndGet();
+            return fork(required);
+        }
+        
+        /**
+         * Forks an optional subtask. The returned supplier gives its result after join,
+         * or {@code defaultValue} if it failed, timed out or was cancelled.
+         */
+        public <U> Supplier<U> forkOptional(Callable<? extends U> task, U defaultValue) {
+            Subtask<U> subtask = fork(task);
+            return () -> subtask.state() == Subtask.State.SUCCESS ? subtask.get() : defaultValue;
+        }
+        
+        @Override
+        protected void handleComplete(Subtask<?> subtask) {
+            if (!requiredTasks.contains(subtask.task())) {
+                return;
+            }
+            if (subtask.state() == Subtask.State.SUCCESS) {
+                requiredCompleted();
+            } else if (subtask.state() == Subtask.State.FAILED) {
+                fail(subtask.exception());
+            }
+        }
+        
+        @Override
+        public RequiredOptionalTaskScope join() throws InterruptedException {
+            forkingDone();
+            requiredDone.await();
+            finishOptional(Instant.now().plus(optionalGrace));
+            return this;
+        }
+        
+        /**
+         * Like {@link #join()}, but the required subtasks must complete by the deadline.
+         */
+        @Override
+        public RequiredOptionalTaskScope joinUntil(Instant deadline) 
+                throws InterruptedException, TimeoutException {
+            forkingDone();
+            long remaining = Duration.between(Instant.now(), deadline).toNanos();
+            if (!requiredDone.await(remaining, TimeUnit.NANOSECONDS)) {
+                // Recorded as the failure so that a later join returns instead of waiting
+                var timeout = new TimeoutException("Required subtasks did not complete by " + deadline);
+                fail(timeout);
+                super.join();
+                throw timeout;
+            }
+            Instant graceEnd = Instant.now().plus(optionalGrace);
+            finishOptional(graceEnd.isBefore(deadline) ? graceEnd : deadline);
+            return this;
+        }
+        
+        public void throwIfFailed() throws ExecutionException {
+            ensureOwnerAndJoined();
+            Throwable t = failure.get();
+            if (t != null) {
+                throw new ExecutionException(t);
+            }
+        }
+        
+        private void finishOptional(Instant graceEnd) throws InterruptedException {
+            if (failure.get() == null && Instant.now().isBefore(graceEnd)) {
+                try {
+                    super.joinUntil(graceEnd);
+                } catch (TimeoutException e) {
+                    // joinUntil shut the scope down but left it unjoined; cancelled optional
+                    // stragglers yield their defaults once it is
+                    shutdown();
+                    super.join();
+                }
+                return;
+            }
+            shutdown();
+            super.join();
+        }
+        
+        /**
+         * Releases the owner's initial count once, however often the scope is joined.
+         */
+        private void forkingDone() {
+            if (forkingDone.compareAndSet(false, true)) {
+                requiredCompleted();
+            }
+        }
+        
+        private void requiredCompleted() {
+            if (requiredPending.decrementAndGet() == 0) {
+                requiredDone.countDown();
+            }
+        }
+        
+        private void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+            requiredDone.countDown();
+            shutdown();
         }
     }
-}
\ No newline at end of file
+}